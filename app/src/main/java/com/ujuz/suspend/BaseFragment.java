@@ -4,10 +4,70 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.RecyclerView;
 
 /**
+ * tab页面的基类
+ *
+ * ViewPagerAdapter 默认使用 BEHAVIOR_RESUME_ONLY_CURRENT_FRAGMENT,只有当前页面会进入 RESUMED,
+ * 据此提供可见性回调,页面可以在 {@link #onFirstVisible()} 中才加载数据、绑定列表,
+ * 避免启动时所有tab同时加载
+ * 列表的adapter建议在创建视图时就设置(数据可以为空),数据到达后会自动同步到当前头部对应的位置
+ *
  * @author ameng
  * Create on 2020/9/15 下午5:06
  * Link:amengnn1029@gmail.com
  */
 public class BaseFragment extends Fragment {
     public RecyclerView tabRecyclerView;
+
+    private boolean isFirstVisible = true;
+    private boolean isVisibleToUser;
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        isVisibleToUser = true;
+        if (isFirstVisible) {
+            isFirstVisible = false;
+            onFirstVisible();
+        }
+        onVisible();
+    }
+
+    @Override
+    public void onPause() {
+        if (isVisibleToUser) {
+            isVisibleToUser = false;
+            onHidden();
+        }
+        super.onPause();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        // 视图已销毁,不再持有列表,视图重建后需要重新绑定
+        tabRecyclerView = null;
+        isFirstVisible = true;
+    }
+
+    /**
+     * 视图创建后第一次可见,在 {@link #onVisible()} 之前调用
+     */
+    protected void onFirstVisible() {
+    }
+
+    /**
+     * 切换到该页面
+     */
+    protected void onVisible() {
+    }
+
+    /**
+     * 从该页面切走
+     */
+    protected void onHidden() {
+    }
+
+    public boolean isVisibleToUser() {
+        return isVisibleToUser;
+    }
 }
@@ -2,8 +2,12 @@ package com.ujuz.suspend;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
 import android.widget.LinearLayout;
+import android.widget.OverScroller;
 
 import com.ujuz.suspend.scroll.ScrollHeaderListener;
 
@@ -14,41 +18,88 @@ import com.ujuz.suspend.scroll.ScrollHeaderListener;
  */
 public class HeaderContainer extends LinearLayout {
 
-    int initY = 0;
+    // 头部使用translationY偏移,getY()会随头部移动而变化,这里使用rawY计算增量
+    float lastRawY = 0;
     int scrollY = 0;
     private ScrollHeaderListener scrollHeaderListener;
 
+    // 惯性滑动
+    private VelocityTracker velocityTracker;
+    private OverScroller flingScroller;
+    private int minFlingVelocity;
+    private int maxFlingVelocity;
+    private int lastFlingY;
+    private boolean isFlinging;
+    private final Choreographer.FrameCallback flingFrameCallback = this::doFlingFrame;
+
 
     public HeaderContainer(Context context) {
         super(context);
+        init(context);
     }
 
     public HeaderContainer(Context context, AttributeSet attrs) {
         super(context, attrs);
+        init(context);
     }
 
     public HeaderContainer(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        init(context);
+    }
+
+    private void init(Context context) {
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        minFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        maxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        flingScroller = new OverScroller(context);
     }
 
     public void setScrollHeaderListener(ScrollHeaderListener scrollHeaderListener) {
         this.scrollHeaderListener = scrollHeaderListener;
     }
 
+    public boolean isFlinging() {
+        return isFlinging;
+    }
+
     @Override
     public boolean dispatchTouchEvent(MotionEvent event) {
-        scrollHeaderListener.setMotionEventAction(event.getAction());
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
-                initY = (int) event.getY();
+                // 新的按下会打断惯性滑动
+                stopFling();
+                scrollHeaderListener.onScrollStart();
+                lastRawY = event.getRawY();
+                if (velocityTracker == null) {
+                    velocityTracker = VelocityTracker.obtain();
+                } else {
+                    velocityTracker.clear();
+                }
+                addMovement(event);
                 break;
             case MotionEvent.ACTION_MOVE:
-                scrollY = (int) (event.getY() - initY);
-                scrollHeaderListener.onScrollListener(scrollY);
+                addMovement(event);
+                scrollY = (int) (event.getRawY() - lastRawY);
+                // 只消费整数部分,余数留到下一次事件
+                lastRawY += scrollY;
+                if (scrollY != 0) scrollHeaderListener.onScrollListener(scrollY);
 
                 break;
             case MotionEvent.ACTION_UP:
-
+                addMovement(event);
+                if (velocityTracker != null) {
+                    velocityTracker.computeCurrentVelocity(1000, maxFlingVelocity);
+                    int velocityY = (int) velocityTracker.getYVelocity();
+                    if (Math.abs(velocityY) > minFlingVelocity) startFling(velocityY);
+                }
+                recycleVelocityTracker();
+                // 惯性滑动时在滑动结束后回调
+                if (!isFlinging) scrollHeaderListener.onScrollEnd();
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                recycleVelocityTracker();
+                scrollHeaderListener.onScrollEnd();
                 break;
             default:
                 break;
@@ -56,5 +107,75 @@ public class HeaderContainer extends LinearLayout {
         return super.dispatchTouchEvent(event);
     }
 
+    /**
+     * 头部随手指移动,记录速度时需要换算到不随translation变化的坐标
+     * @param event
+     */
+    private void addMovement(MotionEvent event) {
+        if (velocityTracker == null) return;
+        float translationY = getTranslationY();
+        event.offsetLocation(0, translationY);
+        velocityTracker.addMovement(event);
+        event.offsetLocation(0, -translationY);
+    }
+
+    private void recycleVelocityTracker() {
+        if (velocityTracker != null) {
+            velocityTracker.recycle();
+            velocityTracker = null;
+        }
+    }
+
+    /**
+     * 开始惯性滑动,每一帧在 {@link #doFlingFrame(long)} 中回调滑动距离
+     * @param velocityY 向下为正
+     */
+    private void startFling(int velocityY) {
+        lastFlingY = 0;
+        flingScroller.fling(0, 0, 0, velocityY, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        isFlinging = true;
+        Choreographer.getInstance().removeFrameCallback(flingFrameCallback);
+        Choreographer.getInstance().postFrameCallback(flingFrameCallback);
+    }
+
+    /**
+     * 停止惯性滑动
+     */
+    public void stopFling() {
+        if (!isFlinging) return;
+        isFlinging = false;
+        flingScroller.abortAnimation();
+        Choreographer.getInstance().removeFrameCallback(flingFrameCallback);
+    }
+
+    private void doFlingFrame(long frameTimeNanos) {
+        if (!isFlinging) return;
+        if (!flingScroller.computeScrollOffset()) {
+            isFlinging = false;
+            scrollHeaderListener.onScrollEnd();
+            return;
+        }
+
+        int y = flingScroller.getCurrY();
+        int dy = y - lastFlingY;
+        lastFlingY = y;
+
+        if (dy != 0) {
+            int velocityY = (int) Math.copySign(flingScroller.getCurrVelocity(), dy);
+            // 头部滑到边界后剩余的速度交给recyclerView,头部的惯性滑动结束
+            if (!scrollHeaderListener.onFlingListener(dy, velocityY)) {
+                stopFling();
+                return;
+            }
+        }
+        Choreographer.getInstance().postFrameCallback(flingFrameCallback);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        stopFling();
+        recycleVelocityTracker();
+        super.onDetachedFromWindow();
+    }
 
 }
@@ -1,25 +1,52 @@
 package com.ujuz.suspend;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
-import android.view.LayoutInflater;
-import android.view.MotionEvent;
+import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
+import android.widget.Space;
 
+import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
-import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.core.view.NestedScrollingParent3;
+import androidx.core.view.NestedScrollingParentHelper;
+import androidx.core.view.ViewCompat;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.Lifecycle;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager.widget.ViewPager;
 
+import com.ujuz.suspend.adapter.TabFragmentFactory;
 import com.ujuz.suspend.adapter.ViewPagerAdapter;
+import com.ujuz.suspend.core.ScrollCoordinator;
+import com.ujuz.suspend.core.ScrollMetrics;
+import com.ujuz.suspend.pager.PagerEngine;
+import com.ujuz.suspend.pager.ViewPager2Engine;
+import com.ujuz.suspend.pager.ViewPagerEngine;
 import com.ujuz.suspend.scroll.ScrollHeaderListener;
-import com.chad.library.adapter.base.BaseQuickAdapter;
+import com.ujuz.suspend.scroll.ScrollMetricsRecorder;
+import com.ujuz.suspend.scroll.ScrollOffsetTracker;
+import com.ujuz.suspend.scroll.LayoutManagerHelper;
+import com.ujuz.suspend.scroll.TabPaging;
+import com.ujuz.suspend.scroll.TabScrollSync;
+import com.ujuz.suspend.scroll.TabViewPrefetcher;
 import com.google.android.material.tabs.TabLayout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -29,8 +56,9 @@ import java.util.List;
  *
  * 使用：
  * 1、左右滑动的ViewPager需要继承ViewPagerAdapter
- * 2、recyclerView中的Adapter要使用BaseQuickAdapter,方便设置头部布局
+ * 2、recyclerView中的Adapter可以是任意RecyclerView.Adapter,头部的间距通过paddingTop实现,不会改变item的position
  * 3、每个Fragment需要继承TabFragment 并赋值tabRecyclerView 或者在自己的fragment中命名 tabRecyclerView 并赋值
+ *   可以在 onFirstVisible 中再加载数据,数据到达后列表会同步到当前头部的位置
  * 4、在整个布局中设置头部即可 eg: SuspendViewPager 布局文件中的整个子布局是可以滑出屏幕的头部(父布局是上下结构布局)
  *   <SuspendViewPager
  *          android:id="@+id/suspendViewPager"
@@ -63,40 +91,115 @@ import java.util.List;
  *
  * stickView : 自定义的悬浮窗试图,需要包含TabLayout 会遍历两层寻找
  * viewPagerAdapter : 设置ViewPager的Adapter
+ * tab较多时可用 setTabFragmentFactory(activity, factory) 代替 setViewPagerAdapter,
+ * 使用ViewPager2按需创建页面,头部及联动的用法不变
+ *
+ * 6、需要排查卡顿时可调用 setOnScrollMetricsListener 获取每次滑动的帧间隔、掉帧、联动耗时、layout次数等统计,默认关闭
+ * 7、各tab的列表使用相同的item类型时,可调用 setSharedRecycledViewPool 共享缓存池,切换tab时不再重新inflate
+ * 8、动态增删tab: 修改数据源后调用 notifyTabInserted/notifyTabRemoved/notifyTabMoved,其余tab不会重建,
+ *   ViewPagerAdapter 需要重写 getItemId,TabFragmentFactory 需要实现 getItemId/containsItem 返回固定的id
+ * 9、setHeaderSnapEnabled 开启后,头部停在中间时会按 setHeaderSnapThreshold 吸附到完全展开或收起
+ * 10、SuspendViewPager 设置id后,旋转屏幕或进程重建时会保存并恢复头部偏移、当前页及各tab的位置
+ * 11、setIndependentTabPositions(true) 后,头部收起时各tab保持自己的位置,切换tab不会回到顶部
+ * 12、列表数据建议继承 TabListAdapter 通过 submitList 更新,在后台比较差异后只通知变化的item,
+ *   更新时头部保持不动,列表按头部重新定位;也可以直接使用 notifyItemXxx,避免 notifyDataSetChanged
+ * 13、分页: setOnLoadMoreListener 后,某个tab距离末尾小于预加载距离(setLoadMorePrefetch)时回调,
+ *   追加数据后调用 finishLoadMore(position, hasMore),加载失败调用 failLoadMore(position),各tab只需先加载第一页
+ * 14、较重的头部可用 addHeaderViewAsync/addStickHeaderViewAsync 在后台线程inflate,完成前按预留高度占位
+ * 15、各tab的列表跟随fragment的视图生命周期关联及释放,SuspendViewPager离开window时释放全部列表,重新attach后按快照恢复
  *
  * @author ameng
  * Create on 2020-05-29 18:24
  * Link:amengnn1029@gmail.com
  */
-public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPageChangeListener, ScrollHeaderListener {
+public class SuspendViewPager extends RelativeLayout implements PagerEngine.Callback, ScrollHeaderListener, NestedScrollingParent3 {
     private static final int VIEWPAGER_ID = 1;
+    // 默认在当前页左右各保留一个页面
+    public static final int DEFAULT_OFFSCREEN_PAGE_LIMIT = 1;
+    // 头部收起超过一半时吸附到收起
+    public static final float DEFAULT_HEADER_SNAP_THRESHOLD = 0.5f;
+    // 吸附整个头部可滑动范围的时长,距离较短时按比例缩短
+    private static final long HEADER_SNAP_DURATION = 250;
+    private static final long MIN_HEADER_SNAP_DURATION = 100;
 
     private Context mContext;
 
     protected ViewPager mViewPager;
     protected ViewPagerAdapter viewPagerAdapter;
+    // 当前使用的左右切换引擎: ViewPager 或 ViewPager2
+    protected PagerEngine pagerEngine;
     protected HeaderContainer mHeaderContainer;// 整个视图的头部
     protected View mStickHeaderView;// 悬浮的头部视图
     protected TabLayout tabLayout;
     protected List<View> mHeaderViewChildList;
+    // 头部的异步inflate,第一次使用时创建
+    private AsyncLayoutInflater asyncLayoutInflater;
+    // 异步浮顶视图完成前的占位,其预留高度作为悬浮高度
+    private Space stickPlaceholder;
 
-    protected LinearLayoutManager currentLayoutManagers;
+    protected RecyclerView.LayoutManager currentLayoutManagers;
     protected RecyclerView currentRecyclerView;
 
     private int mHeaderContainerHeight;
-    private int mMinHeaderTranslation;
     private int mStickHeaderViewHeight;
 
-    // 监听头部滑动触发事件
-    private int eventAction;
-    private int recyclerViewTranslationY;
+    private int offscreenPageLimit = DEFAULT_OFFSCREEN_PAGE_LIMIT;
+    private boolean isHeightInitialized;
+
+    // 一帧内的多次滑动只记录状态,在下一次 syncFrameCallback 中统一应用到视图
+    private boolean isSyncScheduled;
+    private final Choreographer.FrameCallback syncFrameCallback = frameTimeNanos -> {
+        isSyncScheduled = false;
+        applySync();
+    };
+    // 头部拖动后当前tab待滑动
+    private boolean isCurrentTabPending;
 
-    private boolean isRecyclerViewScroll;
+    // 列表的嵌套滑动,在列表滑动前联动头部
+    private NestedScrollingParentHelper nestedScrollingParentHelper;
+    private View nestedScrollTarget;
 
-    private List<? extends BaseFragment> fragmentList;
+    // 与每个页面一一对应,页面未创建或已销毁时为null
     private List<RecyclerView> recyclerViewList = new ArrayList<>();
+    // 与recyclerViewList一一对应,记录每个recyclerView的滑动距离
+    private List<ScrollOffsetTracker> scrollOffsetTrackers = new ArrayList<>();
 
     private RecyclerView.OnScrollListener recyclerViewScrollListener;
+    // 头部偏移及各tab目标偏移的计算
+    private final ScrollCoordinator scrollCoordinator = new ScrollCoordinator();
+    // 不可见的tab只记录目标偏移,可见时再同步
+    private final TabScrollSync tabScrollSync = new TabScrollSync(scrollCoordinator);
+    // 第一个可见item之前的数据结构变化后,在本次layout前按头部重新定位列表,头部及其他tab保持不动
+    // 只修改内容或可见区域之后的变化不会回调;延迟加载的tab数据到达后同样在这里补做同步
+    private final ScrollOffsetTracker.OnDataChangedListener onTabDataChangedListener = recyclerView -> {
+        int position = recyclerViewList.indexOf(recyclerView);
+        if (position < 0) return;
+        // 头部收起时列表已滑过头部范围,由LayoutManager保持可见item的位置,头部不受影响;
+        // 否则头部上方的item增删会改变滑动距离,以头部为准重新定位
+        if (!scrollCoordinator.isHeaderCollapsed()) tabScrollSync.markPending(position);
+        if (tabScrollSync.isPending(position)) syncTab(position);
+    };
+    // 所有tab共享的缓存池,未设置时每个列表使用自己的缓存池
+    private RecyclerView.RecycledViewPool sharedRecycledViewPool;
+    private TabViewPrefetcher tabViewPrefetcher;
+    // 本次左右滑动是否已预创建ViewHolder
+    private boolean isPrefetchRequested;
+    // 各tab的分页状态,设置监听后才会检查
+    private final TabPaging tabPaging = new TabPaging();
+    private TabPaging.OnLoadMoreListener onLoadMoreListener;
+    // layout后(例如追加数据)按最新的剩余量检查分页,可见范围之后的追加不会回调onScrolled
+    private final ScrollOffsetTracker.OnLayoutListener onTabLayoutListener = recyclerView -> {
+        if (onLoadMoreListener != null) checkLoadMore(recyclerViewList.indexOf(recyclerView), false);
+    };
+    // 性能统计,未开启时为null,不产生任何开销
+    private ScrollMetricsRecorder metricsRecorder;
+    // 头部吸附,默认关闭
+    private boolean isHeaderSnapEnabled;
+    private float headerSnapThreshold = DEFAULT_HEADER_SNAP_THRESHOLD;
+    private ValueAnimator headerSnapAnimator;
+    private int headerLayerType;
+    // 已恢复但还未应用的状态,在头部测量完成后应用
+    private SavedState pendingSavedState;
 
     public SuspendViewPager(Context context) {
         super(context);
@@ -112,6 +215,7 @@ public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPage
     private void initView(Context context) {
         mContext = context;
         mHeaderViewChildList = new ArrayList<>();
+        nestedScrollingParentHelper = new NestedScrollingParentHelper(this);
 
         // add viewpager
         mViewPager = new ViewPager(context);
@@ -125,16 +229,35 @@ public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPage
 
 
         mHeaderContainer.setScrollHeaderListener(this);
-        mViewPager.addOnPageChangeListener(this);
 
         recyclerViewScrollListener = new RecyclerView.OnScrollListener() {
             @Override
-            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
-                if (eventAction == MotionEvent.ACTION_MOVE || isRecyclerViewScroll) return;
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+                    // 手指按在列表上时停止头部的惯性滑动及吸附
+                    mHeaderContainer.stopFling();
+                    cancelHeaderSnap();
+                } else if (newState == RecyclerView.SCROLL_STATE_IDLE && recyclerView == currentRecyclerView) {
+                    snapHeader();
+                }
+            }
 
-                int scrollY = getScrollY(recyclerView);
-//                scrollHeader(scrollY);
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // 滑动及可见范围变化时检查分页,任意tab接近末尾时加载下一页;其余layout由onTabLayoutListener检查
+                // 加载失败的tab只在继续往末尾滑动时重试
+                if (onLoadMoreListener != null) checkLoadMore(recyclerViewList.indexOf(recyclerView), dy > 0);
+                // 非当前tab的滑动来自同步,不再反向联动
+                if (recyclerView != currentRecyclerView) return;
+                // 手势及惯性滑动已在onNestedPreScroll中联动,这里只处理代码调用的滑动
+                if (recyclerView == nestedScrollTarget) return;
+
+                int scrollY = getScrollY(getCurrentItem());
+                // 与头部位置一致(例如由头部拖动引起的滑动),无需再次联动
+                if (-scrollY == scrollCoordinator.getTargetOffset()) return;
                 scrollViewByRecyclerView(scrollY);
+                // 代码调用的滑动发生在layout阶段,直接应用避免延迟一帧
+                flushSync();
             }
         };
     }
@@ -172,58 +295,145 @@ public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPage
         return this;
     }
 
+    /**
+     * 在后台线程inflate头部布局,完成前以占位保持头部高度,完成后替换到占位的位置
+     * 适用于冷启动时较重的头部(banner、菜单等),不阻塞首帧
+     * @param layoutId
+     * @param reservedHeight 占位高度(像素),与布局的实际高度一致时替换不会改变头部高度,列表不会移动
+     * @return
+     */
+    public SuspendViewPager addHeaderViewAsync(@LayoutRes int layoutId, int reservedHeight) {
+        Space placeholder = addHeaderPlaceholder(reservedHeight, mHeaderContainer.getChildCount());
+        getAsyncLayoutInflater().inflate(layoutId, mHeaderContainer, (view, resid, parent) -> {
+            int index = removeHeaderPlaceholder(placeholder);
+            mHeaderContainer.addView(view, index);
+            mHeaderViewChildList.add(view);
+        });
+        return this;
+    }
+
     /**
      * 添加浮顶试图,要添加在试图容器的最后一个,这里需要动态添加
+     * 视图中没有TabLayout时改为异步inflate默认的TabLayout,与 addStickHeaderViewAsync(0, 0) 相同
      * @return
      */
     public SuspendViewPager addStickHeaderView(View stickViewVar) {
+        addStickHeaderView(stickViewVar, mHeaderContainer.getChildCount());
+        return this;
+    }
+
+    /**
+     * 异步添加浮顶视图,在后台线程inflate,完成前以占位保持头部高度
+     * 完成前没有TabLayout,以占位高度作为悬浮高度,头部不会收起到占位之上;tab在完成后关联
+     * @param layoutId 需要包含TabLayout(遍历两层),0 表示使用默认的TabLayout
+     * @param reservedHeight 占位高度(像素),使用默认的TabLayout时传 0 即可
+     * @return
+     */
+    public SuspendViewPager addStickHeaderViewAsync(@LayoutRes int layoutId, int reservedHeight) {
+        if (layoutId == 0) {
+            layoutId = R.layout.suspend_stick_header_layout;
+            reservedHeight = getResources().getDimensionPixelSize(R.dimen.suspend_stick_header_height);
+        }
+        inflateStickHeaderViewAsync(layoutId, reservedHeight, mHeaderContainer.getChildCount());
+        return this;
+    }
+
+    /**
+     * 在后台线程inflate浮顶视图,完成后替换到占位的位置
+     * @param layoutId
+     * @param reservedHeight
+     * @param index 占位在头部容器中的位置
+     */
+    private void inflateStickHeaderViewAsync(@LayoutRes int layoutId, int reservedHeight, int index) {
+        Space placeholder = addHeaderPlaceholder(reservedHeight, index);
+        stickPlaceholder = placeholder;
+        getAsyncLayoutInflater().inflate(layoutId, mHeaderContainer, (view, resid, parent) -> {
+            if (stickPlaceholder == placeholder) stickPlaceholder = null;
+            addStickHeaderView(view, removeHeaderPlaceholder(placeholder));
+        });
+    }
+
+    /**
+     * 在头部容器的index处添加浮顶视图
+     * @param stickViewVar
+     * @param index
+     */
+    private void addStickHeaderView(View stickViewVar, int index) {
 
         if (stickViewVar instanceof TabLayout) {
             mStickHeaderView = stickViewVar;
-            mHeaderContainer.addView(stickViewVar,mHeaderContainer.getChildCount());
+            mHeaderContainer.addView(stickViewVar, index);
             mHeaderViewChildList.add(stickViewVar);
             initStickView((TabLayout) stickViewVar);
         } else {
             try {
-                TabLayout tabLayout = null;
                 // 携带ViewPager的浮窗 stickView 必须为ViewGroup类型
-                ViewGroup stickView = (ViewGroup) stickViewVar;
-                // 只做两层遍历查找tabLayout
-                outLoop:
-                for (int i = 0; i < stickView.getChildCount(); i++) {
-                    View view = stickView.getChildAt(i);
-                    if (view instanceof TabLayout) {
-                        tabLayout = (TabLayout) stickView.getChildAt(i);
-
-                        break;
-                    } else if (view instanceof ViewGroup) {
-                        ViewGroup stickViewChild = (ViewGroup) view;
-                        for (int j = 0; j < stickViewChild.getChildCount(); j++) {
-                            if (stickViewChild.getChildAt(j) instanceof TabLayout) {
-                                tabLayout = (TabLayout) stickViewChild.getChildAt(j);
-                                break outLoop;
-                            }
-                        }
-                    }
-                }
-                if (tabLayout != null) {
-                    mStickHeaderView = stickViewVar;
-                    mHeaderContainer.addView(stickViewVar,mHeaderContainer.getChildCount());
-                    mHeaderViewChildList.add(stickViewVar);
-                } else {
-                    // 如果没有tabLayout会使用默认的
-                    tabLayout = (TabLayout) LayoutInflater.from(mContext).inflate(R.layout.suspend_stick_header_layout,null,false);
-                    mStickHeaderView = tabLayout;
-                    mHeaderContainer.addView(tabLayout);
-                    mHeaderViewChildList.add(tabLayout);
+                TabLayout tabLayout = findTabLayout((ViewGroup) stickViewVar);
+                if (tabLayout == null) {
+                    // 如果没有tabLayout会使用默认的,同样在后台线程inflate,避免在主线程解析布局
+                    inflateStickHeaderViewAsync(R.layout.suspend_stick_header_layout,
+                            getResources().getDimensionPixelSize(R.dimen.suspend_stick_header_height), index);
+                    return;
                 }
+                mStickHeaderView = stickViewVar;
+                mHeaderContainer.addView(stickViewVar, index);
+                mHeaderViewChildList.add(stickViewVar);
                 initStickView(tabLayout);
             } catch (ClassCastException e) {
                 throw new ClassCastException("浮窗需要添加TabLayout");
             }
         }
+    }
 
-        return this;
+    /**
+     * 只做两层遍历查找tabLayout
+     * @param stickView
+     * @return 没有时为null
+     */
+    private static TabLayout findTabLayout(ViewGroup stickView) {
+        for (int i = 0; i < stickView.getChildCount(); i++) {
+            View view = stickView.getChildAt(i);
+            if (view instanceof TabLayout) {
+                return (TabLayout) view;
+            } else if (view instanceof ViewGroup) {
+                ViewGroup stickViewChild = (ViewGroup) view;
+                for (int j = 0; j < stickViewChild.getChildCount(); j++) {
+                    if (stickViewChild.getChildAt(j) instanceof TabLayout) {
+                        return (TabLayout) stickViewChild.getChildAt(j);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在头部容器的index处添加异步布局的占位
+     * @param reservedHeight
+     * @param index
+     * @return
+     */
+    private Space addHeaderPlaceholder(int reservedHeight, int index) {
+        Space placeholder = new Space(mContext);
+        mHeaderContainer.addView(placeholder, index, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, reservedHeight));
+        return placeholder;
+    }
+
+    /**
+     * 移除占位
+     * @param placeholder
+     * @return 占位所在的位置,新视图添加到该位置
+     */
+    private int removeHeaderPlaceholder(Space placeholder) {
+        int index = mHeaderContainer.indexOfChild(placeholder);
+        if (index < 0) return mHeaderContainer.getChildCount();
+        mHeaderContainer.removeViewAt(index);
+        return index;
+    }
+
+    private AsyncLayoutInflater getAsyncLayoutInflater() {
+        if (asyncLayoutInflater == null) asyncLayoutInflater = new AsyncLayoutInflater(mContext);
+        return asyncLayoutInflater;
     }
 
 
@@ -234,22 +444,270 @@ public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPage
 
 
     /**
-     * ViewPager 关联 tabLayout
+     * ViewPager 关联 tabLayout,还没有设置页面时在设置后关联
      * @param tabLayout
      */
     private void initStickView(TabLayout tabLayout) {
         this.tabLayout = tabLayout;
-        tabLayout.setupWithViewPager(mViewPager);
+        if (pagerEngine != null) pagerEngine.setupWithTabLayout(tabLayout);
     }
 
 
+    /**
+     * 悬浮部分的高度,异步添加的浮顶视图完成前为占位的预留高度,替换时头部不会跳动
+     * @return
+     */
+    private int getStickyHeight() {
+        if (tabLayout != null) return tabLayout.getMeasuredHeight();
+        return stickPlaceholder == null ? 0 : stickPlaceholder.getMeasuredHeight();
+    }
+
     /**
      * 初始化数据
      */
     private void initHeight() {
         mHeaderContainerHeight = mHeaderContainer.getMeasuredHeight();
-        mStickHeaderViewHeight = tabLayout.getMeasuredHeight();
-        mMinHeaderTranslation = -mHeaderContainerHeight + mStickHeaderViewHeight;
+        mStickHeaderViewHeight = getStickyHeight();
+        scrollCoordinator.setHeaderHeight(mHeaderContainerHeight, mStickHeaderViewHeight);
+        isHeightInitialized = true;
+    }
+
+    /**
+     * 头部测量完成后初始化高度并关联已创建的页面,有恢复的状态时按保存的位置关联
+     * 在首次measure中执行,列表在首次layout时就处于正确的位置
+     */
+    private void initTabs() {
+        if (isHeightInitialized || pagerEngine == null) return;
+        initHeight();
+        if (pendingSavedState != null) {
+            applySavedState();
+            attachTabs();
+            flushSync();
+        } else {
+            addRecyclerViewPlaceHolder();
+        }
+    }
+
+
+    /**
+     * 头部内容的高度变化(例如异步加载的banner、行数变化的菜单)时,在同一次measure中更新受影响的值并重新测量
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (!isHeightInitialized && pagerEngine != null) {
+            initTabs();
+            // 列表已设置间距,重新测量后在本次layout中生效
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        } else if (isHeightInitialized && updateHeaderHeight()) {
+            // 列表的间距已变化,重新测量后在本次layout中生效
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+
+    /**
+     * 头部或悬浮部分的高度变化后,只重新计算受影响的值,不重新绑定任何adapter:
+     * 头部偏移的范围、各列表的头部间距,列表相对间距的位置保持不变,头部偏移按当前列表的位置重新计算
+     * @return 高度是否变化
+     */
+    private boolean updateHeaderHeight() {
+        int headerHeight = mHeaderContainer.getMeasuredHeight();
+        int stickyHeight = getStickyHeight();
+        if (headerHeight == mHeaderContainerHeight && stickyHeight == mStickHeaderViewHeight) return false;
+
+        mHeaderContainerHeight = headerHeight;
+        mStickHeaderViewHeight = stickyHeight;
+        scrollCoordinator.setHeaderHeight(headerHeight, stickyHeight);
+
+        for (int i = 0; i < recyclerViewList.size(); i++) {
+            RecyclerView recyclerView = recyclerViewList.get(i);
+            if (recyclerView == null) continue;
+            // 已有待处理的layout(例如同步滑动)时,其位置本身就是相对间距的
+            boolean keepPosition = !recyclerView.isLayoutRequested();
+            int oldPaddingTop = recyclerView.getPaddingTop();
+            setHeaderSpacing(recyclerView, headerHeight);
+            if (keepPosition && oldPaddingTop != recyclerView.getPaddingTop()) {
+                tabScrollSync.keepPosition(recyclerView, oldPaddingTop);
+            }
+        }
+
+        // 列表相对间距的滑动距离不变,按新的范围重新计算头部偏移并立即应用
+        if (getCurrentTracker() != null) scrollCoordinator.setHeaderOffset(-getScrollY(getCurrentItem()));
+        flushSync();
+        return true;
+    }
+
+
+    /**
+     * 设置当前页左右两侧保留的页面数,超出范围的页面会被销毁,只保留滑动位置的快照
+     * @param limit
+     * @return
+     */
+    public SuspendViewPager setOffscreenPageLimit(int limit) {
+        offscreenPageLimit = Math.max(1, limit);
+        if (pagerEngine != null) pagerEngine.setOffscreenPageLimit(offscreenPageLimit);
+        return this;
+    }
+
+
+    /**
+     * 所有tab的recyclerView共享同一个缓存池,并在左右滑动时利用空闲时间为新页面预创建ViewHolder
+     * 要求各tab的adapter使用相同的viewType定义,缓存池每种viewType的容量
+     * (RecycledViewPool#setMaxRecycledViews)需要不小于一屏可见的该类型item数量
+     * @param pool null 表示不共享
+     * @return
+     */
+    public SuspendViewPager setSharedRecycledViewPool(RecyclerView.RecycledViewPool pool) {
+        sharedRecycledViewPool = pool;
+        if (pool == null) {
+            if (tabViewPrefetcher != null) tabViewPrefetcher.cancel();
+            tabViewPrefetcher = null;
+            return this;
+        }
+        if (tabViewPrefetcher == null) tabViewPrefetcher = new TabViewPrefetcher();
+        for (int i = 0; i < recyclerViewList.size(); i++) {
+            RecyclerView recyclerView = recyclerViewList.get(i);
+            if (recyclerView != null) setSharedPool(recyclerView);
+        }
+        return this;
+    }
+
+    private void setSharedPool(RecyclerView recyclerView) {
+        if (sharedRecycledViewPool == null || recyclerView.getRecycledViewPool() == sharedRecycledViewPool) return;
+        recyclerView.setRecycledViewPool(sharedRecycledViewPool);
+        LayoutManagerHelper.setRecycleChildrenOnDetach(recyclerView.getLayoutManager());
+    }
+
+    /**
+     * 开启或关闭滑动的性能统计
+     * @param enabled
+     * @return
+     */
+    public SuspendViewPager setScrollMetricsEnabled(boolean enabled) {
+        if (enabled && metricsRecorder == null) {
+            metricsRecorder = new ScrollMetricsRecorder(this);
+        } else if (!enabled && metricsRecorder != null) {
+            metricsRecorder.stop();
+            metricsRecorder = null;
+        }
+        return this;
+    }
+
+    /**
+     * 每次滑动结束时回调本次滑动的统计,设置后自动开启统计
+     * @param listener null 只移除回调,不关闭统计
+     * @return
+     */
+    public SuspendViewPager setOnScrollMetricsListener(ScrollMetricsRecorder.OnScrollMetricsListener listener) {
+        if (listener != null) setScrollMetricsEnabled(true);
+        if (metricsRecorder != null) metricsRecorder.setOnScrollMetricsListener(listener);
+        return this;
+    }
+
+    /**
+     * 获取开启统计以来所有已结束滑动的统计
+     * @param out 复制到该对象,可重复使用
+     * @return 未开启统计时返回false
+     */
+    public boolean getScrollMetrics(ScrollMetrics out) {
+        if (metricsRecorder == null) return false;
+        metricsRecorder.getTotal(out);
+        return true;
+    }
+
+    public void resetScrollMetrics() {
+        if (metricsRecorder != null) metricsRecorder.reset();
+    }
+
+    /**
+     * 各tab是否独立保持位置,默认关闭(所有tab与当前tab的滑动距离一致)
+     * 开启后头部收起时已滑过头部范围的tab保持自己的位置,切换回来不会丢失浏览位置;
+     * 只有还在头部范围内的tab需要同步,当前列表在头部收起后的滑动不再标记其他tab
+     * @param independent
+     * @return
+     */
+    public SuspendViewPager setIndependentTabPositions(boolean independent) {
+        scrollCoordinator.setIndependentTabPositions(independent);
+        return this;
+    }
+
+    /**
+     * 分页加载的回调,在某个tab距离末尾小于预加载距离时触发,在主线程的下一个消息中回调(不在layout过程中)
+     * @param listener
+     * @return
+     */
+    public SuspendViewPager setOnLoadMoreListener(TabPaging.OnLoadMoreListener listener) {
+        onLoadMoreListener = listener;
+        if (listener != null) {
+            for (int i = 0; i < recyclerViewList.size(); i++) {
+                checkLoadMore(i, false);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 设置预加载距离,满足任意一个即触发
+     * @param itemCount 剩余item数,默认 {@link TabPaging#DEFAULT_PREFETCH_ITEM_COUNT}
+     * @param distance 剩余内容高度(像素),0 表示只按item数
+     * @return
+     */
+    public SuspendViewPager setLoadMorePrefetch(int itemCount, int distance) {
+        tabPaging.setPrefetch(itemCount, distance);
+        return this;
+    }
+
+    /**
+     * 某个tab一页加载完成,之后可以再次触发;加载失败调用 {@link #failLoadMore(int)}
+     * @param position
+     * @param hasMore false 表示没有更多数据,不再触发;下拉刷新后需要再次传入true
+     */
+    public void finishLoadMore(int position, boolean hasMore) {
+        // 此时剩余量还未包含追加的数据,不在这里检查: 追加后的layout由onTabLayoutListener检查,仍接近末尾时继续加载;
+        // 没有追加数据时不会layout,等下一次滑动再检查,不会立即重复触发
+        tabPaging.finish(position, hasMore);
+    }
+
+    /**
+     * 某个tab一页加载失败,之后列表的layout(例如显示/隐藏加载中的footer)不会再触发,
+     * 列表继续往末尾滑动时重试;也可以调用 finishLoadMore(position, true) 后由下一次滑动触发
+     * @param position
+     */
+    public void failLoadMore(int position) {
+        tabPaging.fail(position);
+    }
+
+    /**
+     * @param position
+     * @param isScrollingToEnd 列表正往末尾滑动,加载失败的tab此时重试
+     */
+    private void checkLoadMore(int position, boolean isScrollingToEnd) {
+        if (position < 0 || position >= scrollOffsetTrackers.size()) return;
+        if (!tabPaging.check(position, scrollOffsetTrackers.get(position), isScrollingToEnd)) return;
+        post(() -> {
+            if (onLoadMoreListener != null) onLoadMoreListener.onLoadMore(position);
+        });
+    }
+
+    /**
+     * 头部的拖动、惯性滑动或列表的滑动停止后,头部停在中间位置时吸附到完全展开或收起
+     * @param enabled
+     * @return
+     */
+    public SuspendViewPager setHeaderSnapEnabled(boolean enabled) {
+        isHeaderSnapEnabled = enabled;
+        if (!enabled) cancelHeaderSnap();
+        return this;
+    }
+
+    /**
+     * 设置吸附的阈值
+     * @param threshold 0 - 1,头部收起的比例达到该值时吸附到收起,否则吸附到展开,默认 {@link #DEFAULT_HEADER_SNAP_THRESHOLD}
+     * @return
+     */
+    public SuspendViewPager setHeaderSnapThreshold(float threshold) {
+        headerSnapThreshold = Math.min(1, Math.max(0, threshold));
+        return this;
     }
 
 
@@ -260,16 +718,11 @@ public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPage
      */
     public SuspendViewPager setViewPagerAdapter(ViewPagerAdapter adapter) {
         try {
-            mViewPager.setOffscreenPageLimit(adapter.getCount() - 1);
-
-            fragmentList =  adapter.getFragmentList();
             viewPagerAdapter = adapter;
-            mViewPager.setAdapter(adapter);
-
-            mViewPager.post(()->{
-                initHeight();
-                addRecyclerViewPlaceHolder();
-            });
+            ViewPagerEngine engine = new ViewPagerEngine(mViewPager, adapter);
+            setPagerEngine(engine);
+            engine.start();
+            if (tabLayout != null) engine.setupWithTabLayout(tabLayout);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -277,167 +730,786 @@ public class SuspendViewPager extends RelativeLayout implements ViewPager.OnPage
         return this;
     }
 
+    /**
+     * 使用 ViewPager2 按需创建页面,适用于tab较多的场景,只有可见及相邻的页面会被创建
+     * @param activity
+     * @param factory
+     * @return
+     */
+    public SuspendViewPager setTabFragmentFactory(FragmentActivity activity, TabFragmentFactory factory) {
+        return setTabFragmentFactory(activity.getSupportFragmentManager(), activity.getLifecycle(), factory);
+    }
 
     /**
-     * 为每个recyclerView添加头部
+     * 在Fragment中使用时,页面由 childFragmentManager 管理
+     * @param fragment
+     * @param factory
      * @return
      */
-    public SuspendViewPager addRecyclerViewPlaceHolder() {
+    public SuspendViewPager setTabFragmentFactory(Fragment fragment, TabFragmentFactory factory) {
+        return setTabFragmentFactory(fragment.getChildFragmentManager(), fragment.getLifecycle(), factory);
+    }
+
+    public SuspendViewPager setTabFragmentFactory(FragmentManager fragmentManager, Lifecycle lifecycle, TabFragmentFactory factory) {
         try {
-            // 这里需要获取recyclerView做监听
-            for (int i = 0; i < fragmentList.size(); i++) {
-                RecyclerView recyclerView = fragmentList.get(i).tabRecyclerView;
-                recyclerViewList.add(recyclerView);
+            ViewPager2Engine engine = new ViewPager2Engine(mContext, fragmentManager, lifecycle, factory);
+            engine.getView().setId(VIEWPAGER_ID);
+            setPagerEngine(engine);
+            engine.start();
+            // TabLayoutMediator 需要在设置adapter之后关联
+            if (tabLayout != null) engine.setupWithTabLayout(tabLayout);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return this;
+    }
 
-                recyclerView.addOnScrollListener(recyclerViewScrollListener);
+    /**
+     * 切换到新的引擎,引擎的视图放在头部之下
+     * @param engine
+     */
+    private void setPagerEngine(PagerEngine engine) {
+        if (pagerEngine != null) {
+            for (int i = 0; i < recyclerViewList.size(); i++) {
+                detachTab(i);
+            }
+            pagerEngine.release();
+        }
+        pagerEngine = engine;
 
-                // placeHolder
-                View view = new View(mContext);
-                ViewGroup.LayoutParams layoutParams = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, mHeaderContainerHeight);
-                view.setLayoutParams(layoutParams);
+        View pagerView = engine.getView();
+        if (getChildAt(0) != pagerView) {
+            removeViewAt(0);
+            addView(pagerView, 0, new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        engine.setOffscreenPageLimit(offscreenPageLimit);
+        engine.setCallback(this);
+
+        recyclerViewList.clear();
+        scrollOffsetTrackers.clear();
+        for (int i = 0; i < engine.getCount(); i++) {
+            recyclerViewList.add(null);
+            scrollOffsetTrackers.add(null);
+        }
+        tabScrollSync.setTabCount(engine.getCount());
+        tabPaging.setTabCount(engine.getCount());
 
-                BaseQuickAdapter adapter = (BaseQuickAdapter) recyclerView.getAdapter();
-                adapter.addHeaderView(view);
-                adapter.notifyDataSetChanged();
+        // 在下一次measure中初始化,未显示的视图在attach后初始化
+        isHeightInitialized = false;
+        pagerView.post(this::initTabs);
+    }
 
-            }
+    /**
+     * 获取当前页
+     * @return
+     */
+    public int getCurrentItem() {
+        return pagerEngine == null ? 0 : pagerEngine.getCurrentItem();
+    }
+
+    public void setCurrentItem(int item, boolean smoothScroll) {
+        if (pagerEngine != null) pagerEngine.setCurrentItem(item, smoothScroll);
+    }
+
+
+    /**
+     * 数据源在position处插入了tab之后调用(ViewPagerAdapter 传入的列表或 TabFragmentFactory 的数据)
+     * 已有tab的监听、间距及位置不变,新tab创建后按当前头部的位置定位
+     * @param position
+     */
+    public void notifyTabInserted(int position) {
+        if (pagerEngine == null) return;
+        recyclerViewList.add(position, null);
+        scrollOffsetTrackers.add(position, null);
+        tabScrollSync.insertTab(position);
+        tabPaging.insertTab(position);
+        pagerEngine.notifyTabInserted(position);
+        onTabsChanged();
+    }
+
+    /**
+     * 数据源删除了position处的tab之后调用,只解除该tab的关联
+     * @param position
+     */
+    public void notifyTabRemoved(int position) {
+        if (pagerEngine == null) return;
+        RecyclerView recyclerView = recyclerViewList.get(position);
+        if (recyclerView != null && recyclerView == nestedScrollTarget) nestedScrollTarget = null;
+        detachTab(position);
+        recyclerViewList.remove(position);
+        scrollOffsetTrackers.remove(position);
+        tabScrollSync.removeTab(position);
+        tabPaging.removeTab(position);
+        pagerEngine.notifyTabRemoved(position);
+        onTabsChanged();
+    }
+
+    /**
+     * 数据源移动了tab之后调用,列表、滑动状态及快照跟随tab移动
+     * @param fromPosition
+     * @param toPosition
+     */
+    public void notifyTabMoved(int fromPosition, int toPosition) {
+        if (pagerEngine == null || fromPosition == toPosition) return;
+        recyclerViewList.add(toPosition, recyclerViewList.remove(fromPosition));
+        scrollOffsetTrackers.add(toPosition, scrollOffsetTrackers.remove(fromPosition));
+        tabScrollSync.moveTab(fromPosition, toPosition);
+        tabPaging.moveTab(fromPosition, toPosition);
+        pagerEngine.notifyTabMoved(fromPosition, toPosition);
+        onTabsChanged();
+    }
+
+    /**
+     * tab变化后当前页可能已变化,新创建的页面在 onPageUpdated 中关联
+     */
+    private void onTabsChanged() {
+        cancelHeaderSnap();
+        updateCurrentRecyclerView(getCurrentItem());
+        if (currentRecyclerView != null) syncTab(getCurrentItem());
+    }
+
+
+    /**
+     * 为每个已创建的recyclerView添加头部
+     * @return
+     */
+    public SuspendViewPager addRecyclerViewPlaceHolder() {
+        try {
+            scrollCoordinator.setTargetOffset(0);
+            attachTabs();
         } catch (Exception e) {
             e.printStackTrace();
         }
         return this;
     }
 
+    private void attachTabs() {
+        // 这里需要获取recyclerView做监听
+        for (int i = 0; i < recyclerViewList.size(); i++) {
+            attachTab(i);
+        }
+        updateCurrentRecyclerView(getCurrentItem());
+    }
+
+
+    /**
+     * 关联某个页面新创建的recyclerView: 添加滑动监听、头部间距,并恢复到同步的位置
+     * @param position
+     */
+    private void attachTab(int position) {
+        RecyclerView recyclerView = pagerEngine.getTabRecyclerView(position);
+        if (recyclerView == null || recyclerView == recyclerViewList.get(position)) return;
+
+        detachTab(position);
+        recyclerViewList.set(position, recyclerView);
+
+        // tracker的滑动监听需要先于recyclerViewScrollListener添加
+        ScrollOffsetTracker tracker = new ScrollOffsetTracker(recyclerView);
+        tracker.setOnDataChangedListener(onTabDataChangedListener);
+        tracker.setOnLayoutListener(onTabLayoutListener);
+        tracker.attach();
+        scrollOffsetTrackers.set(position, tracker);
+        recyclerView.addOnScrollListener(recyclerViewScrollListener);
+
+        setSharedPool(recyclerView);
+        setHeaderSpacing(recyclerView, mHeaderContainerHeight);
+
+        // 在首次layout之前恢复位置
+        tabScrollSync.restore(position, recyclerView, scrollCoordinator.getHeaderOffset());
+    }
+
+    /**
+     * 解除某个页面recyclerView的关联
+     * @param position
+     */
+    private void detachTab(int position) {
+        RecyclerView recyclerView = recyclerViewList.get(position);
+        if (recyclerView == null) return;
+
+        recyclerView.removeOnScrollListener(recyclerViewScrollListener);
+        setHeaderSpacing(recyclerView, 0);
+        scrollOffsetTrackers.get(position).detach();
+        scrollOffsetTrackers.set(position, null);
+        recyclerViewList.set(position, null);
+        if (recyclerView == currentRecyclerView) {
+            currentRecyclerView = null;
+            currentLayoutManagers = null;
+        }
+    }
+
+    /**
+     * 设置recyclerView顶部为头部预留的间距
+     * 使用paddingTop并关闭clipToPadding,适用于任意adapter,不会改变position也不需要重新绑定
+     * @param recyclerView
+     * @param spacing 0 表示移除间距
+     */
+    private void setHeaderSpacing(RecyclerView recyclerView, int spacing) {
+        Object originalPaddingTop = recyclerView.getTag(R.id.suspend_original_padding_top);
+        if (originalPaddingTop == null) {
+            if (spacing == 0) return;
+            originalPaddingTop = recyclerView.getPaddingTop();
+            recyclerView.setTag(R.id.suspend_original_padding_top, originalPaddingTop);
+            recyclerView.setClipToPadding(false);
+        }
+
+        int paddingTop = (int) originalPaddingTop + spacing;
+        if (recyclerView.getPaddingTop() != paddingTop) {
+            recyclerView.setPadding(recyclerView.getPaddingLeft(), paddingTop, recyclerView.getPaddingRight(), recyclerView.getPaddingBottom());
+        }
+    }
+
+    private void updateCurrentRecyclerView(int position) {
+        currentRecyclerView = position >= 0 && position < recyclerViewList.size() ? recyclerViewList.get(position) : null;
+        currentLayoutManagers = currentRecyclerView == null ? null : currentRecyclerView.getLayoutManager();
+    }
+
+
+    @Override
+    public void onPageDestroy(int position) {
+        if (!isHeightInitialized || position >= recyclerViewList.size()) return;
+        // 只保留位置快照,释放recyclerView
+        tabScrollSync.saveSnapshot(position, scrollOffsetTrackers.get(position), scrollCoordinator.getHeaderOffset());
+        detachTab(position);
+    }
+
+    @Override
+    public void onPageUpdated() {
+        if (!isHeightInitialized || pagerEngine == null) return;
+        for (int i = 0; i < recyclerViewList.size(); i++) {
+            attachTab(i);
+        }
+        if (currentRecyclerView == null) updateCurrentRecyclerView(getCurrentItem());
+    }
+
 
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        // 左右滑动时只同步即将可见的两个页面
+        syncTab(position);
+        if (positionOffsetPixels > 0) {
+            syncTab(position + 1);
+            prefetchTabViews();
+        }
+    }
 
+    /**
+     * 左右滑动开始后,在空闲时为即将创建的页面预创建ViewHolder
+     */
+    private void prefetchTabViews() {
+        if (tabViewPrefetcher == null || isPrefetchRequested) return;
+        isPrefetchRequested = true;
+        tabViewPrefetcher.prefetch(currentRecyclerView, sharedRecycledViewPool);
     }
 
     @Override
     public void onPageSelected(int position) {
-        currentRecyclerView = recyclerViewList.get(position);
-        currentLayoutManagers = (LinearLayoutManager) currentRecyclerView.getLayoutManager();
+        cancelHeaderSnap();
+        syncTab(position);
+        updateCurrentRecyclerView(position);
+    }
+
+    /**
+     * 将某个tab同步到当前头部对应的位置
+     * @param position
+     */
+    private void syncTab(int position) {
+        if (position < 0 || position >= recyclerViewList.size()) return;
+        if (tabScrollSync.apply(position, recyclerViewList.get(position), getScrollY(position)) && metricsRecorder != null) {
+            metricsRecorder.onTabSynced();
+        }
     }
 
     @Override
     public void onPageScrollStateChanged(int state) {
+        if (state == PagerEngine.SCROLL_STATE_IDLE) isPrefetchRequested = false;
+        if (state == PagerEngine.SCROLL_STATE_DRAGGING) cancelHeaderSnap();
+    }
 
+
+    /**
+     * 获取某个tab的recyclerView已滑动的距离
+     * 根据缓存的每个item的真实高度计算,item高度不一致时也准确
+     * @param position
+     * @return
+     */
+    private int getScrollY(int position) {
+        if (position < 0 || position >= scrollOffsetTrackers.size()) return 0;
+        ScrollOffsetTracker tracker = scrollOffsetTrackers.get(position);
+        return tracker == null ? 0 : tracker.getScrollOffset();
+    }
+
+    /**
+     * 立即重新计算滑动距离,用于onScrolled回调之前需要读取的场景(onNestedScroll)
+     * @param position
+     * @return
+     */
+    private int updateScrollY(int position) {
+        if (position < 0 || position >= scrollOffsetTrackers.size()) return 0;
+        ScrollOffsetTracker tracker = scrollOffsetTrackers.get(position);
+        if (tracker == null) return 0;
+        tracker.update();
+        return tracker.getScrollOffset();
+    }
+
+    /**
+     * 设置头部的平移量,视图在下一帧统一更新
+     * 使用translationY 只更新RenderNode属性,不会触发头部及其子布局的measure/layout
+     * 触摸事件的命中区域由ViewGroup根据translation自动换算
+     * @param offset
+     */
+    private void setHeaderOffset(int offset) {
+        if (scrollCoordinator.setHeaderOffset(offset)) scheduleSync();
     }
 
+    /**
+     * 请求在下一帧应用联动,同一帧内多次请求只会执行一次
+     * 在输入事件中请求时,会在同一帧的动画阶段执行,不会延迟显示
+     */
+    private void scheduleSync() {
+        if (isSyncScheduled) return;
+        isSyncScheduled = true;
+        Choreographer.getInstance().postFrameCallback(syncFrameCallback);
+    }
 
-    private int getScrollY(RecyclerView recyclerView) {
-        View child = recyclerView.getChildAt(0);
-        if (child == null) {
-            return 0;
+    /**
+     * 立即应用待处理的联动,用于已处于动画或layout阶段的回调(惯性滑动、代码调用的滑动)
+     */
+    private void flushSync() {
+        if (isSyncScheduled) {
+            isSyncScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(syncFrameCallback);
         }
+        applySync();
+    }
 
-        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
-        int firstVisiblePosition = linearLayoutManager.findFirstVisibleItemPosition();
-        int top = child.getTop();
+    /**
+     * 将合并后的头部偏移及当前tab的位置应用到视图
+     */
+    private void applySync() {
+        long startNanos = metricsRecorder == null ? 0 : System.nanoTime();
+        int headerOffset = scrollCoordinator.getHeaderOffset();
+        if (mHeaderContainer.getTranslationY() != headerOffset) {
+            mHeaderContainer.setTranslationY(headerOffset);
+            if (metricsRecorder != null) metricsRecorder.onHeaderOffsetChanged();
+        }
+        if (isCurrentTabPending) {
+            isCurrentTabPending = false;
+            syncTab(getCurrentItem());
+        }
+        if (metricsRecorder != null) metricsRecorder.onSync(System.nanoTime() - startNanos);
+    }
 
-        int headerHeight = 0;
-        if (firstVisiblePosition >= 1) {
-            headerHeight = mHeaderContainer.getMeasuredHeight();
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (metricsRecorder != null) metricsRecorder.onLayout();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (pagerEngine == null) return;
+        pagerEngine.setLifecycleTracking(true);
+        // detach期间释放的列表按快照重新关联
+        if (isHeightInitialized) attachTabs();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        if (isSyncScheduled) {
+            isSyncScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(syncFrameCallback);
         }
+        if (metricsRecorder != null) metricsRecorder.stop();
+        if (tabViewPrefetcher != null) tabViewPrefetcher.cancel();
+        cancelHeaderSnap();
+        releaseTabs();
+        super.onDetachedFromWindow();
+    }
 
-        return -top + firstVisiblePosition * child.getHeight() + headerHeight;
+    /**
+     * 离开window时释放所有列表: 保存位置快照,移除监听及头部间距,不再持有recyclerView,
+     * 并停止监听页面的生命周期,宿主销毁后SuspendViewPager及各tab的列表都可以被回收
+     * 子view先于这里detach,共享缓存池时列表已回收全部item,快照取自各tab的tracker
+     */
+    private void releaseTabs() {
+        if (pagerEngine == null) return;
+        pagerEngine.setLifecycleTracking(false);
+        nestedScrollTarget = null;
+        for (int i = 0; i < recyclerViewList.size(); i++) {
+            onPageDestroy(i);
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        if (!isHeightInitialized && pendingSavedState != null) {
+            // 恢复的状态还未应用,原样保存
+            state.currentItem = pendingSavedState.currentItem;
+            state.headerOffset = pendingSavedState.headerOffset;
+            state.targetOffset = pendingSavedState.targetOffset;
+            state.positions = pendingSavedState.positions;
+            state.offsets = pendingSavedState.offsets;
+            return state;
+        }
+
+        int tabCount = tabScrollSync.getTabCount();
+        state.currentItem = getCurrentItem();
+        state.headerOffset = scrollCoordinator.getHeaderOffset();
+        state.targetOffset = scrollCoordinator.getTargetOffset();
+        state.positions = new int[tabCount];
+        state.offsets = new int[tabCount];
+        if (isHeightInitialized) {
+            tabScrollSync.saveState(recyclerViewList, state.headerOffset, state.positions, state.offsets);
+        } else {
+            Arrays.fill(state.positions, RecyclerView.NO_POSITION);
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        // 当前页在子view(ViewPager/ViewPager2)恢复之后再核对,见 dispatchRestoreInstanceState
+        pendingSavedState = savedState;
     }
 
     /**
-     * recyclerView触发的头部布局滑动
-     * @param scrollY
+     * 先恢复自身再恢复子view: ViewPager/ViewPager2 恢复自己的当前页,FragmentStateAdapter 恢复自己的fragment,
+     * 以翻页控件恢复的结果为准,只有与保存的当前页不一致(例如翻页控件没有保存状态)时才设置,不会先后选中两个页面
      */
-    private void scrollHeader(int scrollY) {
-        int translationY = Math.max(-scrollY, mMinHeaderTranslation);
-        LayoutParams layoutParams = (LayoutParams) mHeaderContainer.getLayoutParams();
-        layoutParams.topMargin = translationY;
-        mHeaderContainer.setLayoutParams(layoutParams);
+    @Override
+    protected void dispatchRestoreInstanceState(SparseArray<Parcelable> container) {
+        SavedState previousState = pendingSavedState;
+        super.dispatchRestoreInstanceState(container);
+        SavedState savedState = pendingSavedState;
+        if (savedState == null || savedState == previousState) return;
+
+        if (pagerEngine != null && savedState.currentItem < pagerEngine.getCount()
+                && pagerEngine.getCurrentItem() != savedState.currentItem) {
+            pagerEngine.setCurrentItem(savedState.currentItem, false);
+        }
+        // 已经初始化(在首次measure之后恢复)时立即应用
+        if (isHeightInitialized) {
+            applySavedState();
+            for (int i = 0; i < recyclerViewList.size(); i++) {
+                RecyclerView recyclerView = recyclerViewList.get(i);
+                if (recyclerView != null) tabScrollSync.restore(i, recyclerView, scrollCoordinator.getHeaderOffset());
+            }
+            flushSync();
+        }
     }
 
     /**
-     * 判断recyclerView 是否可滑动
-     * @return 0 可向上不可往下滑 滑动 1 可向下不可往上滑动 2 可同时向下或向上滑动 其他不可滑动
+     * 将恢复的状态应用到头部偏移、目标偏移及各tab的快照,tab数量变化时各tab同步到目标偏移
      */
-    private int isRecyclerScrollable() {
-        if (currentRecyclerView == null) currentRecyclerView = recyclerViewList.get(mViewPager.getCurrentItem());
-        if (currentLayoutManagers == null) currentLayoutManagers = (LinearLayoutManager) currentRecyclerView.getLayoutManager();
+    private void applySavedState() {
+        SavedState state = pendingSavedState;
+        pendingSavedState = null;
+        scrollCoordinator.setHeaderOffset(state.headerOffset);
+        scrollCoordinator.setTargetOffset(state.targetOffset);
+        if (state.positions.length == tabScrollSync.getTabCount()) {
+            tabScrollSync.restoreState(state.headerOffset, state.positions, state.offsets);
+        }
+    }
 
-        RecyclerView.Adapter adapter = currentRecyclerView.getAdapter();
-        if (currentLayoutManagers == null || adapter == null) return 3;
+    /**
+     * 保存的滑动状态,只包含基本类型及基本类型数组
+     */
+    static class SavedState extends BaseSavedState {
+        int currentItem;
+        int headerOffset;
+        int targetOffset;
+        // 每个tab第一个item的位置及相对头部间距的偏移,NO_POSITION 表示恢复后同步到目标偏移
+        int[] positions;
+        int[] offsets;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel source) {
+            super(source);
+            currentItem = source.readInt();
+            headerOffset = source.readInt();
+            targetOffset = source.readInt();
+            positions = source.createIntArray();
+            offsets = source.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(currentItem);
+            out.writeInt(headerOffset);
+            out.writeInt(targetOffset);
+            out.writeIntArray(positions);
+            out.writeIntArray(offsets);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source);
+            }
 
-        boolean lastUp = currentLayoutManagers.findLastCompletelyVisibleItemPosition() < adapter.getItemCount() - 1;
-        boolean fistDown = currentLayoutManagers.findFirstCompletelyVisibleItemPosition() > 0;
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
 
-        if (lastUp && !fistDown) return 0;
-        if (fistDown && !lastUp) return 1;
-        if (lastUp && fistDown) return 2;
+    /**
+     * 获取头部当前的平移量
+     * @return 0 完全展开 悬浮部分高度-头部高度 完全收起(只剩悬浮部分)
+     */
+    public int getHeaderOffset() {
+        return scrollCoordinator.getHeaderOffset();
+    }
 
-        return 3;
+    /**
+     * 获取当前tab的滑动状态
+     * @return
+     */
+    private ScrollOffsetTracker getCurrentTracker() {
+        int position = getCurrentItem();
+        if (position < 0 || position >= scrollOffsetTrackers.size()) return null;
+        return scrollOffsetTrackers.get(position);
     }
 
     @Override
-    public void onScrollListener(int scrollY) {
-        if (currentRecyclerView == null) currentRecyclerView = recyclerViewList.get(mViewPager.getCurrentItem());
-        recyclerViewTranslationY = mHeaderContainerHeight + (mHeaderContainer.getTop() + scrollY);
+    public void onScrollStart() {
+        cancelHeaderSnap();
+    }
 
-//        if (isRecyclerScrollable() != 3) scrollViewByHeader(scrollY);
+    @Override
+    public void onScrollEnd() {
+        snapHeader();
+    }
 
-        // 往上滑 可滑时
-        if (scrollY < 0 && (isRecyclerScrollable() == 0 || isRecyclerScrollable() == 2)) {
-            scrollViewByHeader(scrollY);
+    @Override
+    public void onScrollListener(int scrollY) {
+        if (currentRecyclerView == null) updateCurrentRecyclerView(getCurrentItem());
+        ScrollOffsetTracker tracker = getCurrentTracker();
+        if (currentRecyclerView == null || tracker == null) return;
+
+        // 读取tracker在滑动及layout回调中缓存的状态,不遍历子view
+        if (scrollCoordinator.onHeaderDrag(scrollY, tracker.isAtTop(), tracker.isAtBottom())) {
+            scrollViewByHeader();
         }
-        // 往下滑 可滑时
-        else if (scrollY > 0 && (isRecyclerScrollable() == 1 || isRecyclerScrollable() == 2)) {
-            scrollViewByHeader(scrollY);
+    }
+
+    @Override
+    public boolean onFlingListener(int scrollY, int velocityY) {
+        ScrollOffsetTracker tracker = getCurrentTracker();
+        if (currentRecyclerView == null || tracker == null) return false;
+
+        switch (scrollCoordinator.onHeaderFling(scrollY, tracker.isAtTop(), tracker.isAtBottom())) {
+            case ScrollCoordinator.FLING_HANDOFF:
+                // 往上滑 头部已收起 剩余速度交给recyclerView继续滑动
+                currentRecyclerView.fling(0, -velocityY);
+                return false;
+            case ScrollCoordinator.FLING_END:
+                // 往下滑 头部已完全展开
+                return false;
+            default:
+                scrollViewByHeader();
+                // 惯性滑动已在帧回调中执行,直接应用
+                flushSync();
+                return true;
         }
-        // 往下滑 不可滑动时 归位
-        else if (scrollY > 0 && isRecyclerScrollable() == 0) {
-            scrollViewByHeader(-mHeaderContainer.getTop());
+    }
+
+    /**
+     * 头部停在中间位置时,以动画吸附到展开或收起
+     * 每一帧只滑动当前列表(scrollBy 平移已有的item,不重新layout),头部按列表的实际位置联动,
+     * 两者逐像素一致;头部的偏移只修改translationY,动画期间头部使用硬件层,内容不会重绘
+     * 不可见的tab只记录最终的目标偏移,可见时同步一次
+     */
+    private void snapHeader() {
+        if (!isHeaderSnapEnabled || mHeaderContainer.isFlinging()) return;
+        if (headerSnapAnimator != null && headerSnapAnimator.isRunning()) return;
+        if (currentRecyclerView == null || getCurrentTracker() == null) return;
+
+        int offset = scrollCoordinator.getHeaderOffset();
+        int snapOffset = scrollCoordinator.getSnapOffset(headerSnapThreshold);
+        if (snapOffset == offset) return;
+
+        if (headerSnapAnimator == null) {
+            headerSnapAnimator = new ValueAnimator();
+            headerSnapAnimator.setInterpolator(new DecelerateInterpolator());
+            headerSnapAnimator.addUpdateListener(animation -> {
+                int dy = scrollCoordinator.getHeaderOffset() - (int) animation.getAnimatedValue();
+                if (dy == 0 || currentRecyclerView == null) return;
+                currentRecyclerView.scrollBy(0, dy);
+                // 列表到达底部时滑不完,头部停在列表实际的位置
+                scrollViewByRecyclerView(getScrollY(getCurrentItem()));
+                flushSync();
+            });
+            headerSnapAnimator.addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationStart(Animator animation) {
+                    headerLayerType = mHeaderContainer.getLayerType();
+                    mHeaderContainer.setLayerType(LAYER_TYPE_HARDWARE, null);
+                    if (ViewCompat.isAttachedToWindow(mHeaderContainer)) mHeaderContainer.buildLayer();
+                }
+
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    mHeaderContainer.setLayerType(headerLayerType, null);
+                }
+            });
         }
+        int range = -scrollCoordinator.getMinHeaderOffset();
+        headerSnapAnimator.setIntValues(offset, snapOffset);
+        headerSnapAnimator.setDuration(Math.max(MIN_HEADER_SNAP_DURATION, HEADER_SNAP_DURATION * Math.abs(snapOffset - offset) / range));
+        headerSnapAnimator.start();
+    }
+
+    /**
+     * 停止吸附,头部及列表停在当前位置
+     */
+    private void cancelHeaderSnap() {
+        if (headerSnapAnimator != null && headerSnapAnimator.isRunning()) headerSnapAnimator.cancel();
     }
 
     /**
      * 滑动头部布局
      * @param scrollY
      */
+    public void scrollHeaderTranslation(int scrollY) {
+        setHeaderOffset(scrollCoordinator.getHeaderOffset() + scrollY);
+    }
+
+    /**
+     * @deprecated 头部已改为translationY偏移,不再修改topMargin,请使用 {@link #scrollHeaderTranslation(int)}
+     */
+    @Deprecated
     public void scrollHeaderLayoutParams(int scrollY) {
-        LayoutParams layoutParams = (LayoutParams) mHeaderContainer.getLayoutParams();
-        layoutParams.topMargin = mHeaderContainer.getTop() + scrollY;
-        mHeaderContainer.setLayoutParams(layoutParams);
+        scrollHeaderTranslation(scrollY);
     }
 
 
     /**
-     * 滑动头部时联动
-     * @param scrollY
+     * 滑动头部时联动,头部偏移及目标偏移已由scrollCoordinator计算
      */
-    private void scrollViewByHeader(int scrollY) {
-//        KLog.v("by header scrollY:" + scrollY + " mHeaderContainer.getTop:" + mHeaderContainer.getTop() + " mHeaderContainerHeight:" + mHeaderContainerHeight + " recyclerViewTranslationY:" +recyclerViewTranslationY);
-        scrollHeaderLayoutParams(scrollY);
-        for (int i = 0; i < recyclerViewList.size(); i++) {
-            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerViewList.get(i).getLayoutManager();
-            layoutManager.scrollToPositionWithOffset(1,recyclerViewTranslationY);
-        }
+    private void scrollViewByHeader() {
+        // 只滑动当前可见的tab,其余tab在可见时再同步
+        // 一帧内多次拖动只在syncFrameCallback中滑动一次
+        isCurrentTabPending = true;
+        if (metricsRecorder != null) metricsRecorder.onScroll();
+        scheduleSync();
     }
 
     /**
      * 滑动recyclerView时联动
      */
     private void scrollViewByRecyclerView(int scrollY) {
-        recyclerViewTranslationY = mHeaderContainerHeight - scrollY;
-        isRecyclerViewScroll = true;
-//        KLog.v("by recyclerView scrollY:" + scrollY + " mHeaderContainer.getTop:" + mHeaderContainer.getTop() + " mHeaderContainerHeight:" + mHeaderContainerHeight + " recyclerViewTranslationY:" + recyclerViewTranslationY);
-        scrollHeader(scrollY);
-        for (int i = 0; i < recyclerViewList.size(); i++) {
-            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerViewList.get(i).getLayoutManager();
-            if (layoutManager != currentLayoutManagers)
-                layoutManager.scrollToPositionWithOffset(1,recyclerViewTranslationY);
+        // 当前tab就是滑动源,无需同步
+        if (metricsRecorder != null) metricsRecorder.onScroll();
+        if (scrollCoordinator.onListScroll(getCurrentItem(), scrollY)) scheduleSync();
+    }
+
+
+    @Override
+    public boolean onStartNestedScroll(@NonNull View child, @NonNull View target, int axes, int type) {
+        return (axes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0 && recyclerViewList.contains(target);
+    }
+
+    @Override
+    public void onNestedScrollAccepted(@NonNull View child, @NonNull View target, int axes, int type) {
+        nestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes, type);
+        nestedScrollTarget = target;
+        if (type == ViewCompat.TYPE_TOUCH) mHeaderContainer.stopFling();
+    }
+
+    @Override
+    public void onStopNestedScroll(@NonNull View target, int type) {
+        nestedScrollingParentHelper.onStopNestedScroll(target, type);
+        if (nestedScrollingParentHelper.getNestedScrollAxes() == ViewCompat.SCROLL_AXIS_NONE) {
+            nestedScrollTarget = null;
         }
-        isRecyclerViewScroll = false;
+    }
+
+    /**
+     * 列表滑动前,按列表将要到达的位置移动头部并记录其他tab的目标偏移
+     * 头部的占位随列表一起滑动,所以这里不消费滑动距离
+     */
+    @Override
+    public void onNestedPreScroll(@NonNull View target, int dx, int dy, @NonNull int[] consumed, int type) {
+        if (target != currentRecyclerView || dy == 0) return;
+
+        int scrollY = Math.max(0, getScrollY(getCurrentItem()) + dy);
+        scrollViewByRecyclerView(scrollY);
+        // 列表的惯性滑动在动画阶段回调,直接应用;手势滑动在syncFrameCallback中合并应用
+        if (type == ViewCompat.TYPE_NON_TOUCH) flushSync();
+    }
+
+    @Override
+    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int type, @NonNull int[] consumed) {
+        // 列表到达边界,没能滑完预计的距离,按实际位置校正
+        if (target == currentRecyclerView && dyUnconsumed != 0) {
+            scrollViewByRecyclerView(updateScrollY(getCurrentItem()));
+            if (type == ViewCompat.TYPE_NON_TOUCH) flushSync();
+        }
+    }
+
+    @Override
+    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int type) {
+        if (target == currentRecyclerView && dyUnconsumed != 0) {
+            scrollViewByRecyclerView(updateScrollY(getCurrentItem()));
+            if (type == ViewCompat.TYPE_NON_TOUCH) flushSync();
+        }
+    }
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return onStartNestedScroll(child, target, nestedScrollAxes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        onNestedScrollAccepted(child, target, axes, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        onStopNestedScroll(target, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        onNestedPreScroll(target, dx, dy, consumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        onNestedScroll(target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    /**
+     * 列表自身的惯性滑动会以 TYPE_NON_TOUCH 继续分发嵌套滑动,头部随之联动
+     */
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        return false;
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return false;
     }
 
     @Override
-    public void setMotionEventAction(int action) {
-        eventAction = action;
+    public int getNestedScrollAxes() {
+        return nestedScrollingParentHelper.getNestedScrollAxes();
     }
 }
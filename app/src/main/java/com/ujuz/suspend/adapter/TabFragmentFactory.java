@@ -0,0 +1,39 @@
+package com.ujuz.suspend.adapter;
+
+import com.ujuz.suspend.BaseFragment;
+
+/**
+ * 按需创建tab页面,用于 ViewPager2 引擎
+ * 页面只在即将显示时创建,被回收后再次显示会重新创建(状态由FragmentStateAdapter恢复)
+ */
+public interface TabFragmentFactory {
+    int getCount();
+
+    /**
+     * 创建某个位置的页面,每次都需要返回新的实例
+     * @param position
+     * @return
+     */
+    BaseFragment createFragment(int position);
+
+    CharSequence getPageTitle(int position);
+
+    /**
+     * 页面的固定id,插入、删除、移动tab时需要返回与位置无关的id(例如数据的id),
+     * 已有页面按id保留,不会重新创建
+     * @param position
+     * @return
+     */
+    default long getItemId(int position) {
+        return position;
+    }
+
+    /**
+     * 与 {@link #getItemId(int)} 对应,id已不在数据中的页面会被销毁
+     * @param itemId
+     * @return
+     */
+    default boolean containsItem(long itemId) {
+        return itemId >= 0 && itemId < getCount();
+    }
+}
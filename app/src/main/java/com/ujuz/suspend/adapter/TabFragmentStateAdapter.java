@@ -0,0 +1,131 @@
+package com.ujuz.suspend.adapter;
+
+import android.util.LongSparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.Lifecycle;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager2.adapter.FragmentStateAdapter;
+
+import com.ujuz.suspend.BaseFragment;
+
+/**
+ * ViewPager2 的适配器,页面通过 {@link TabFragmentFactory} 按需创建
+ * 按页面id记录当前的fragment,用于查找页面的列表,tab插入、删除、移动后仍能找到
+ * 旋转屏幕或进程重建后 FragmentStateAdapter 恢复的页面不会经过 createFragment,
+ * 按 FragmentStateAdapter 添加页面时使用的tag("f" + 页面id)从FragmentManager中找回
+ */
+public class TabFragmentStateAdapter extends FragmentStateAdapter {
+    // FragmentStateAdapter 添加页面时使用的tag前缀
+    private static final String FRAGMENT_TAG_PREFIX = "f";
+
+    private final FragmentManager fragmentManager;
+    private final TabFragmentFactory factory;
+    // 已创建的页面,key为页面id,页面被回收后移除
+    private final LongSparseArray<BaseFragment> fragments = new LongSparseArray<>();
+
+    public TabFragmentStateAdapter(@NonNull FragmentManager fragmentManager, @NonNull Lifecycle lifecycle, TabFragmentFactory factory) {
+        super(fragmentManager, lifecycle);
+        this.fragmentManager = fragmentManager;
+        this.factory = factory;
+    }
+
+    public TabFragmentFactory getFactory() {
+        return factory;
+    }
+
+    @NonNull
+    @Override
+    public Fragment createFragment(int position) {
+        BaseFragment fragment = factory.createFragment(position);
+        fragments.put(factory.getItemId(position), fragment);
+        return fragment;
+    }
+
+    @Override
+    public int getItemCount() {
+        return factory.getCount();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return factory.getItemId(position);
+    }
+
+    @Override
+    public boolean containsItem(long itemId) {
+        return factory.containsItem(itemId);
+    }
+
+    /**
+     * 获取某个位置已创建的页面
+     * @param position
+     * @return 未创建或已回收时为null
+     */
+    public BaseFragment getFragment(int position) {
+        if (position < 0 || position >= getItemCount()) return null;
+        long itemId = factory.getItemId(position);
+        BaseFragment fragment = fragments.get(itemId);
+        if (fragment == null) {
+            // 恢复的页面
+            Fragment restored = fragmentManager.findFragmentByTag(FRAGMENT_TAG_PREFIX + itemId);
+            if (restored instanceof BaseFragment) {
+                fragment = (BaseFragment) restored;
+                fragments.put(itemId, fragment);
+            }
+        }
+        return fragment;
+    }
+
+    /**
+     * 获取页面当前所在的位置
+     * @param fragment
+     * @return 不是该适配器创建的页面或已从数据中删除时返回 -1
+     */
+    public int getPosition(Fragment fragment) {
+        if (!(fragment instanceof BaseFragment)) return -1;
+        int index = fragments.indexOfValue((BaseFragment) fragment);
+        long itemId;
+        if (index >= 0) {
+            itemId = fragments.keyAt(index);
+        } else {
+            // 恢复的页面按tag得到页面id
+            itemId = parseItemId(fragment);
+            if (itemId == RecyclerView.NO_ID || !factory.containsItem(itemId)) return -1;
+            fragments.put(itemId, (BaseFragment) fragment);
+        }
+        for (int position = 0; position < getItemCount(); position++) {
+            if (factory.getItemId(position) == itemId) return position;
+        }
+        return -1;
+    }
+
+    /**
+     * @param fragment
+     * @return 不是 FragmentStateAdapter 添加的页面时返回 {@link RecyclerView#NO_ID}
+     */
+    private static long parseItemId(Fragment fragment) {
+        String tag = fragment.getTag();
+        if (tag == null || !tag.startsWith(FRAGMENT_TAG_PREFIX)) return RecyclerView.NO_ID;
+        try {
+            return Long.parseLong(tag.substring(FRAGMENT_TAG_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return RecyclerView.NO_ID;
+        }
+    }
+
+    /**
+     * 页面被回收
+     * @param fragment
+     */
+    public void onFragmentDestroyed(Fragment fragment) {
+        for (int i = 0; i < fragments.size(); i++) {
+            if (fragments.valueAt(i) == fragment) {
+                fragments.removeAt(i);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.ujuz.suspend.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * tab列表推荐使用的adapter,数据通过 {@link #submitList} 更新
+ * 新旧数据在后台线程比较,只通知变化的item,不会重新绑定整个列表,也不会打断item动画
+ * 第一个可见item之前有插入、删除、移动时,SuspendViewPager 在本次layout前按头部重新定位列表,头部及其他tab保持不动;
+ * 只修改内容(例如payload更新)或变化在可见区域之后时不会重新定位
+ */
+public abstract class TabListAdapter<T, VH extends RecyclerView.ViewHolder> extends ListAdapter<T, VH> {
+    private static Executor diffExecutor;
+
+    protected TabListAdapter(@NonNull DiffUtil.ItemCallback<T> diffCallback) {
+        super(new AsyncDifferConfig.Builder<>(diffCallback)
+                .setBackgroundThreadExecutor(getDiffExecutor())
+                .build());
+    }
+
+    /**
+     * 设置比较数据的线程,需要在创建adapter之前调用,例如使用应用已有的后台线程池
+     * @param executor
+     */
+    public static synchronized void setDiffExecutor(@NonNull Executor executor) {
+        diffExecutor = executor;
+    }
+
+    /**
+     * 所有tab共用的比较线程,默认为一个低优先级的后台线程
+     * @return
+     */
+    public static synchronized Executor getDiffExecutor() {
+        if (diffExecutor == null) {
+            diffExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "suspend-tab-diff");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        return diffExecutor;
+    }
+}
@@ -1,41 +1,131 @@
 package com.ujuz.suspend.adapter;
 
+import android.util.LongSparseArray;
 import android.view.ViewGroup;
 
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentPagerAdapter;
+import androidx.fragment.app.FragmentTransaction;
 
 import com.ujuz.suspend.BaseFragment;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Created by ameng
  * 左右切换fragment的viewPager的适配器
+ * 默认只有当前页面进入 RESUMED,其余页面停在 STARTED,页面的可见性回调见 {@link BaseFragment}
+ * 传入的列表直接作为数据源,修改列表后调用 SuspendViewPager 对应的 notifyTabXxx(或 notifyDataSetChanged)
+ * 动态增删tab时需要重写 {@link #getItemId(int)} 返回与位置无关的固定id(例如数据的id),
+ * 该id用作fragment的tag,页面重建后按id找回原来的fragment
+ * 旋转屏幕或进程重建后FragmentManager会自己重建fragment,instantiateItem 按tag复用这些fragment,
+ * 传入列表中的新实例不会被添加,因此页面对应的fragment以 instantiateItem 实际返回的为准,见 {@link #getFragment(int)}
  */
 public class ViewPagerAdapter extends FragmentPagerAdapter {
-    private List<? extends BaseFragment> list;
-    private List<String> title;
+    private final FragmentManager fragmentManager;
+    private final List<? extends BaseFragment> list;
+    private final List<String> title;
+    // 实际显示的fragment,key为页面id,页面从数据中删除后移除
+    private final LongSparseArray<BaseFragment> pages = new LongSparseArray<>();
+    // 已从列表删除的fragment,在本次页面更新结束后从FragmentManager中移除
+    private final List<Fragment> removedFragments = new ArrayList<>();
+    private OnPageLifecycleListener onPageLifecycleListener;
+
+    /**
+     * 页面的更新,视图的销毁由FragmentManager的生命周期回调通知
+     */
+    public interface OnPageLifecycleListener {
+        /**
+         * 一次页面更新完成,新创建的fragment已有视图
+         */
+        void onPageUpdated();
+    }
 
     public ViewPagerAdapter(FragmentManager fm, List<? extends BaseFragment> list, List<String> title) {
-        super(fm);
+        this(fm, list, title, BEHAVIOR_RESUME_ONLY_CURRENT_FRAGMENT);
+    }
+
+    /**
+     * @param behavior {@link #BEHAVIOR_RESUME_ONLY_CURRENT_FRAGMENT} 或 {@link #BEHAVIOR_SET_USER_VISIBLE_HINT}(不支持可见性回调)
+     */
+    public ViewPagerAdapter(FragmentManager fm, List<? extends BaseFragment> list, List<String> title, int behavior) {
+        super(fm, behavior);
+        this.fragmentManager = fm;
         this.list = list;
         this.title = title;
     }
 
+    public FragmentManager getFragmentManager() {
+        return fragmentManager;
+    }
+
     public List<? extends BaseFragment> getFragmentList() {
         return list;
     }
 
+    public void setOnPageLifecycleListener(OnPageLifecycleListener onPageLifecycleListener) {
+        this.onPageLifecycleListener = onPageLifecycleListener;
+    }
+
+    /**
+     * 获取某个位置实际显示的fragment
+     * @param position
+     * @return 还未创建时为null
+     */
+    public BaseFragment getFragment(int position) {
+        if (position < 0 || position >= getCount()) return null;
+        return pages.get(getItemId(position));
+    }
+
+    /**
+     * 获取fragment当前所在的位置
+     * @param fragment
+     * @return 不是实际显示的fragment或已从数据中删除时返回 -1
+     */
+    public int getPosition(Object fragment) {
+        int index = pages.indexOfValue((BaseFragment) fragment);
+        if (index < 0) return -1;
+        long itemId = pages.keyAt(index);
+        for (int position = 0; position < getCount(); position++) {
+            if (getItemId(position) == itemId) return position;
+        }
+        return -1;
+    }
+
     @Override
     public Object instantiateItem(ViewGroup container, int position) {
-        return super.instantiateItem(container, position);
+        // 可能是FragmentManager按tag恢复的fragment,而不是列表中的实例
+        BaseFragment fragment = (BaseFragment) super.instantiateItem(container, position);
+        pages.put(getItemId(position), fragment);
+        return fragment;
     }
 
     @Override
     public void destroyItem(ViewGroup container, int position, Object object) {
         super.destroyItem(container, position, object);
+        // tab变化后position是页面原来的位置,按fragment重新查找
+        if (getPosition(object) < 0) {
+            int pageIndex = pages.indexOfValue((BaseFragment) object);
+            if (pageIndex >= 0) pages.removeAt(pageIndex);
+            removedFragments.add((Fragment) object);
+        }
+    }
+
+    @Override
+    public void finishUpdate(ViewGroup container) {
+        // 这里会提交fragment的事务,之后新页面的视图已创建
+        super.finishUpdate(container);
+        if (!removedFragments.isEmpty()) {
+            FragmentTransaction transaction = fragmentManager.beginTransaction();
+            for (Fragment fragment : removedFragments) {
+                transaction.remove(fragment);
+            }
+            removedFragments.clear();
+            transaction.commitNowAllowingStateLoss();
+        }
+        if (onPageLifecycleListener != null) onPageLifecycleListener.onPageUpdated();
     }
 
     @Override
@@ -48,6 +138,12 @@ public class ViewPagerAdapter extends FragmentPagerAdapter {
         return list.size();
     }
 
+    @Override
+    public int getItemPosition(Object object) {
+        int index = getPosition(object);
+        return index < 0 ? POSITION_NONE : index;
+    }
+
     @Override
     public CharSequence getPageTitle(int position) {
         return title.get(position);
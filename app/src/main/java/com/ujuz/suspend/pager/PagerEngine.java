@@ -0,0 +1,85 @@
+package com.ujuz.suspend.pager;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.tabs.TabLayout;
+
+/**
+ * 左右切换tab的引擎,屏蔽 ViewPager 与 ViewPager2 的差异
+ * SuspendViewPager 只通过该接口获取当前页、各页面的列表及页面的创建与销毁
+ */
+public interface PagerEngine {
+    /**
+     * 左右滑动的状态,与 ViewPager/ViewPager2 的取值一致
+     */
+    int SCROLL_STATE_IDLE = 0;
+    int SCROLL_STATE_DRAGGING = 1;
+    int SCROLL_STATE_SETTLING = 2;
+
+    /**
+     * 页面滑动及页面创建、销毁的回调
+     */
+    interface Callback {
+        void onPageScrolled(int position, float positionOffset, int positionOffsetPixels);
+
+        void onPageSelected(int position);
+
+        void onPageScrollStateChanged(int state);
+
+        /**
+         * 页面即将被销毁,此时页面的视图还在
+         * @param position
+         */
+        void onPageDestroy(int position);
+
+        /**
+         * 有页面的视图创建完成
+         */
+        void onPageUpdated();
+    }
+
+    View getView();
+
+    void setCallback(Callback callback);
+
+    int getCount();
+
+    int getCurrentItem();
+
+    void setCurrentItem(int item, boolean smoothScroll);
+
+    void setOffscreenPageLimit(int limit);
+
+    void setupWithTabLayout(TabLayout tabLayout);
+
+    /**
+     * 获取某个页面的列表
+     * @param position
+     * @return 页面未创建或视图已销毁时为null
+     */
+    RecyclerView getTabRecyclerView(int position);
+
+    /**
+     * 数据源已插入、删除或移动了tab,通知引擎增量更新页面,已有页面保留不重建
+     * @param position
+     */
+    void notifyTabInserted(int position);
+
+    void notifyTabRemoved(int position);
+
+    void notifyTabMoved(int fromPosition, int toPosition);
+
+    /**
+     * 开始或停止跟随页面视图的生命周期,随 SuspendViewPager attach/detach window 调用
+     * 停止期间不会回调页面的创建与销毁,也不再被FragmentManager引用
+     * @param enabled
+     */
+    void setLifecycleTracking(boolean enabled);
+
+    /**
+     * 不再使用时释放监听
+     */
+    void release();
+}
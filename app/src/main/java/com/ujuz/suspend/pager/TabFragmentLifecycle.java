@@ -0,0 +1,66 @@
+package com.ujuz.suspend.pager;
+
+import android.os.Bundle;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+
+/**
+ * 跟随tab页面fragment的视图生命周期,视图创建后通知关联列表,视图销毁前通知解除关联
+ * 除了引擎自身的页面回收,也覆盖宿主进入返回栈、Activity重建等由FragmentManager销毁视图的场景,
+ * 已销毁的列表不会再被引用或同步
+ */
+class TabFragmentLifecycle extends FragmentManager.FragmentLifecycleCallbacks {
+
+    /**
+     * 查找fragment对应的tab
+     */
+    interface PositionLookup {
+        /**
+         * @param fragment
+         * @return 不是tab页面或已删除时返回 -1
+         */
+        int getPosition(Fragment fragment);
+    }
+
+    private final FragmentManager fragmentManager;
+    private final PositionLookup positionLookup;
+    private PagerEngine.Callback callback;
+    private boolean isRegistered;
+
+    TabFragmentLifecycle(FragmentManager fragmentManager, PositionLookup positionLookup) {
+        this.fragmentManager = fragmentManager;
+        this.positionLookup = positionLookup;
+    }
+
+    void setCallback(PagerEngine.Callback callback) {
+        this.callback = callback;
+    }
+
+    void register() {
+        if (isRegistered) return;
+        isRegistered = true;
+        fragmentManager.registerFragmentLifecycleCallbacks(this, false);
+    }
+
+    void unregister() {
+        if (!isRegistered) return;
+        isRegistered = false;
+        fragmentManager.unregisterFragmentLifecycleCallbacks(this);
+    }
+
+    @Override
+    public void onFragmentViewCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @NonNull View v, @Nullable Bundle savedInstanceState) {
+        if (callback != null && positionLookup.getPosition(f) >= 0) callback.onPageUpdated();
+    }
+
+    @Override
+    public void onFragmentViewDestroyed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+        // 此时视图还未从容器中移除
+        int position = positionLookup.getPosition(f);
+        if (callback != null && position >= 0) callback.onPageDestroy(position);
+    }
+}
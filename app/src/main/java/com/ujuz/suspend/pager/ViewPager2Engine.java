@@ -0,0 +1,162 @@
+package com.ujuz.suspend.pager;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.Lifecycle;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager2.widget.ViewPager2;
+
+import com.google.android.material.tabs.TabLayout;
+import com.google.android.material.tabs.TabLayoutMediator;
+import com.ujuz.suspend.BaseFragment;
+import com.ujuz.suspend.adapter.TabFragmentFactory;
+import com.ujuz.suspend.adapter.TabFragmentStateAdapter;
+
+/**
+ * 基于 ViewPager2 + FragmentStateAdapter 的引擎
+ *
+ * 页面只在即将显示时通过 {@link TabFragmentFactory} 创建,离开缓存范围后随ViewPager2的页面回收一起销毁,
+ * 打开有大量tab的页面时只创建可见及相邻的页面
+ * 页面视图的创建与销毁通过 {@link TabFragmentLifecycle} 获得
+ */
+public class ViewPager2Engine implements PagerEngine {
+    private final ViewPager2 viewPager2;
+    private final TabFragmentStateAdapter adapter;
+    private final TabFragmentLifecycle tabFragmentLifecycle;
+    private TabLayoutMediator tabLayoutMediator;
+    private Callback callback;
+
+    private final ViewPager2.OnPageChangeCallback onPageChangeCallback = new ViewPager2.OnPageChangeCallback() {
+        @Override
+        public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+            if (callback != null) callback.onPageScrolled(position, positionOffset, positionOffsetPixels);
+        }
+
+        @Override
+        public void onPageSelected(int position) {
+            if (callback != null) callback.onPageSelected(position);
+        }
+
+        @Override
+        public void onPageScrollStateChanged(int state) {
+            if (callback != null) callback.onPageScrollStateChanged(state);
+        }
+    };
+
+    /**
+     * @param context
+     * @param fragmentManager Activity 的 supportFragmentManager 或父Fragment的 childFragmentManager
+     * @param lifecycle 与fragmentManager对应的生命周期
+     * @param factory
+     */
+    public ViewPager2Engine(Context context, FragmentManager fragmentManager, Lifecycle lifecycle, TabFragmentFactory factory) {
+        this.viewPager2 = new ViewPager2(context);
+        this.adapter = new TabFragmentStateAdapter(fragmentManager, lifecycle, factory);
+        this.tabFragmentLifecycle = new TabFragmentLifecycle(fragmentManager, adapter::getPosition) {
+            @Override
+            public void onFragmentDestroyed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+                adapter.onFragmentDestroyed(f);
+            }
+        };
+        viewPager2.registerOnPageChangeCallback(onPageChangeCallback);
+        tabFragmentLifecycle.register();
+    }
+
+    public ViewPager2 getViewPager2() {
+        return viewPager2;
+    }
+
+    public TabFragmentStateAdapter getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * 设置adapter,需要在 SuspendViewPager 准备好回调之后调用
+     */
+    public void start() {
+        viewPager2.setAdapter(adapter);
+    }
+
+    @Override
+    public View getView() {
+        return viewPager2;
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+        tabFragmentLifecycle.setCallback(callback);
+    }
+
+    @Override
+    public int getCount() {
+        return adapter.getItemCount();
+    }
+
+    @Override
+    public int getCurrentItem() {
+        return viewPager2.getCurrentItem();
+    }
+
+    @Override
+    public void setCurrentItem(int item, boolean smoothScroll) {
+        viewPager2.setCurrentItem(item, smoothScroll);
+    }
+
+    @Override
+    public void setOffscreenPageLimit(int limit) {
+        viewPager2.setOffscreenPageLimit(limit);
+    }
+
+    @Override
+    public void setupWithTabLayout(TabLayout tabLayout) {
+        if (tabLayoutMediator != null) tabLayoutMediator.detach();
+        tabLayoutMediator = new TabLayoutMediator(tabLayout, viewPager2,
+                (tab, position) -> tab.setText(adapter.getFactory().getPageTitle(position)));
+        tabLayoutMediator.attach();
+    }
+
+    @Override
+    public RecyclerView getTabRecyclerView(int position) {
+        BaseFragment fragment = adapter.getFragment(position);
+        return fragment == null || fragment.getView() == null ? null : fragment.tabRecyclerView;
+    }
+
+    @Override
+    public void notifyTabInserted(int position) {
+        adapter.notifyItemInserted(position);
+    }
+
+    @Override
+    public void notifyTabRemoved(int position) {
+        adapter.notifyItemRemoved(position);
+    }
+
+    @Override
+    public void notifyTabMoved(int fromPosition, int toPosition) {
+        adapter.notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void setLifecycleTracking(boolean enabled) {
+        if (enabled) {
+            tabFragmentLifecycle.register();
+        } else {
+            tabFragmentLifecycle.unregister();
+        }
+    }
+
+    @Override
+    public void release() {
+        viewPager2.unregisterOnPageChangeCallback(onPageChangeCallback);
+        tabFragmentLifecycle.unregister();
+        if (tabLayoutMediator != null) {
+            tabLayoutMediator.detach();
+            tabLayoutMediator = null;
+        }
+    }
+}
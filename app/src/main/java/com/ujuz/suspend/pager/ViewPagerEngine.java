@@ -0,0 +1,141 @@
+package com.ujuz.suspend.pager;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager.widget.ViewPager;
+
+import com.google.android.material.tabs.TabLayout;
+import com.ujuz.suspend.BaseFragment;
+import com.ujuz.suspend.adapter.ViewPagerAdapter;
+
+/**
+ * 基于 ViewPager + {@link ViewPagerAdapter} 的引擎,所有fragment预先创建
+ * 页面视图的销毁通过 {@link TabFragmentLifecycle} 获得,包括ViewPager之外由FragmentManager销毁的场景
+ */
+public class ViewPagerEngine implements PagerEngine, ViewPager.OnPageChangeListener, ViewPagerAdapter.OnPageLifecycleListener {
+    private final ViewPager viewPager;
+    private final ViewPagerAdapter adapter;
+    private final TabFragmentLifecycle tabFragmentLifecycle;
+    private Callback callback;
+
+    public ViewPagerEngine(ViewPager viewPager, ViewPagerAdapter adapter) {
+        this.viewPager = viewPager;
+        this.adapter = adapter;
+        this.tabFragmentLifecycle = new TabFragmentLifecycle(adapter.getFragmentManager(), adapter::getPosition);
+        viewPager.addOnPageChangeListener(this);
+        adapter.setOnPageLifecycleListener(this);
+        tabFragmentLifecycle.register();
+    }
+
+    public ViewPager getViewPager() {
+        return viewPager;
+    }
+
+    public ViewPagerAdapter getAdapter() {
+        return adapter;
+    }
+
+    /**
+     * 设置adapter,需要在 SuspendViewPager 准备好回调之后调用
+     */
+    public void start() {
+        viewPager.setAdapter(adapter);
+    }
+
+    @Override
+    public View getView() {
+        return viewPager;
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+        tabFragmentLifecycle.setCallback(callback);
+    }
+
+    @Override
+    public int getCount() {
+        return adapter.getCount();
+    }
+
+    @Override
+    public int getCurrentItem() {
+        return viewPager.getCurrentItem();
+    }
+
+    @Override
+    public void setCurrentItem(int item, boolean smoothScroll) {
+        viewPager.setCurrentItem(item, smoothScroll);
+    }
+
+    @Override
+    public void setOffscreenPageLimit(int limit) {
+        viewPager.setOffscreenPageLimit(limit);
+    }
+
+    @Override
+    public void setupWithTabLayout(TabLayout tabLayout) {
+        tabLayout.setupWithViewPager(viewPager);
+    }
+
+    @Override
+    public RecyclerView getTabRecyclerView(int position) {
+        // 重建后页面是FragmentManager恢复的fragment,不是数据源中的实例
+        BaseFragment fragment = adapter.getFragment(position);
+        return fragment == null || fragment.getView() == null ? null : fragment.tabRecyclerView;
+    }
+
+    // ViewPager 只支持整体通知,已有页面通过 getItemPosition 重新定位,不会重建
+
+    @Override
+    public void notifyTabInserted(int position) {
+        adapter.notifyDataSetChanged();
+    }
+
+    @Override
+    public void notifyTabRemoved(int position) {
+        adapter.notifyDataSetChanged();
+    }
+
+    @Override
+    public void notifyTabMoved(int fromPosition, int toPosition) {
+        adapter.notifyDataSetChanged();
+    }
+
+    @Override
+    public void setLifecycleTracking(boolean enabled) {
+        if (enabled) {
+            tabFragmentLifecycle.register();
+        } else {
+            tabFragmentLifecycle.unregister();
+        }
+    }
+
+    @Override
+    public void release() {
+        viewPager.removeOnPageChangeListener(this);
+        adapter.setOnPageLifecycleListener(null);
+        tabFragmentLifecycle.unregister();
+    }
+
+    @Override
+    public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+        if (callback != null) callback.onPageScrolled(position, positionOffset, positionOffsetPixels);
+    }
+
+    @Override
+    public void onPageSelected(int position) {
+        if (callback != null) callback.onPageSelected(position);
+    }
+
+    @Override
+    public void onPageScrollStateChanged(int state) {
+        if (callback != null) callback.onPageScrollStateChanged(state);
+    }
+
+    @Override
+    public void onPageUpdated() {
+        if (callback != null) callback.onPageUpdated();
+    }
+}
@@ -0,0 +1,75 @@
+package com.ujuz.suspend.scroll;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+
+/**
+ * 屏蔽不同LayoutManager的差异,支持 LinearLayoutManager、GridLayoutManager、StaggeredGridLayoutManager
+ */
+public final class LayoutManagerHelper {
+    public static final int TYPE_LINEAR = 0;
+    public static final int TYPE_GRID = 1;
+    public static final int TYPE_STAGGERED = 2;
+    public static final int TYPE_OTHER = 3;
+
+    private LayoutManagerHelper() {
+    }
+
+    public static int getType(RecyclerView.LayoutManager layoutManager) {
+        // GridLayoutManager 继承自 LinearLayoutManager,需要先判断
+        if (layoutManager instanceof GridLayoutManager) return TYPE_GRID;
+        if (layoutManager instanceof LinearLayoutManager) return TYPE_LINEAR;
+        if (layoutManager instanceof StaggeredGridLayoutManager) return TYPE_STAGGERED;
+        return TYPE_OTHER;
+    }
+
+    public static int getSpanCount(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof GridLayoutManager) return ((GridLayoutManager) layoutManager).getSpanCount();
+        if (layoutManager instanceof StaggeredGridLayoutManager) return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+        return 1;
+    }
+
+    /**
+     * 获取item所在的列,只在layout之后有效
+     * @param child
+     * @return
+     */
+    public static int getSpanIndex(View child) {
+        Object lp = child.getLayoutParams();
+        if (lp instanceof GridLayoutManager.LayoutParams) return ((GridLayoutManager.LayoutParams) lp).getSpanIndex();
+        if (lp instanceof StaggeredGridLayoutManager.LayoutParams) return ((StaggeredGridLayoutManager.LayoutParams) lp).getSpanIndex();
+        return 0;
+    }
+
+    /**
+     * 列表从窗口移除时回收所有item,配合共享的缓存池,页面销毁后其ViewHolder可以被其他tab复用
+     * 回收发生在列表自身的 onDetachedFromWindow,之后不能再从子view读取位置,快照取自 {@link ScrollOffsetTracker}
+     * StaggeredGridLayoutManager 没有该选项
+     * @param layoutManager
+     */
+    public static void setRecycleChildrenOnDetach(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).setRecycleChildrenOnDetach(true);
+        }
+    }
+
+    /**
+     * 滑动到指定位置,position 的顶部距离 paddingTop 为 offset
+     * @param layoutManager
+     * @param position
+     * @param offset
+     */
+    public static void scrollToPositionWithOffset(RecyclerView.LayoutManager layoutManager, int position, int offset) {
+        if (layoutManager instanceof LinearLayoutManager) {
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            ((StaggeredGridLayoutManager) layoutManager).scrollToPositionWithOffset(position, offset);
+        } else if (layoutManager != null) {
+            layoutManager.scrollToPosition(position);
+        }
+    }
+}
@@ -6,6 +6,23 @@ package com.ujuz.suspend.scroll;
  * Link:amengnn1029@gmail.com
  */
 public interface ScrollHeaderListener {
+    /**
+     * 手指按下头部
+     */
+    void onScrollStart();
+
     void onScrollListener(int scrollY);
-    void setMotionEventAction(int action);
+
+    /**
+     * 头部的拖动及惯性滑动结束,头部可能停在中间位置
+     */
+    void onScrollEnd();
+
+    /**
+     * 头部惯性滑动
+     * @param scrollY 本帧滑动距离,向下为正
+     * @param velocityY 当前速度,向下为正
+     * @return false 头部不能继续滑动(已交给recyclerView),惯性滑动结束
+     */
+    boolean onFlingListener(int scrollY, int velocityY);
 }
@@ -0,0 +1,132 @@
+package com.ujuz.suspend.scroll;
+
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+
+import com.ujuz.suspend.core.ScrollMetrics;
+
+/**
+ * 滑动期间的性能统计,只在开启统计时创建
+ *
+ * 收到滑动事件后开始逐帧记录帧间隔及掉帧,滑动之外的layout、同步不计入
+ * 连续 {@link #IDLE_FRAMES} 帧没有滑动视为一次滑动结束,
+ * 此时回调本次滑动的统计并累加到总的统计中
+ * 统计对象在创建时分配,逐帧记录不会创建对象
+ */
+public class ScrollMetricsRecorder implements Choreographer.FrameCallback {
+    private static final int IDLE_FRAMES = 3;
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1_000_000_000L / 60;
+
+    /**
+     * 一次滑动结束时回调
+     */
+    public interface OnScrollMetricsListener {
+        /**
+         * @param metrics 本次滑动的统计,回调结束后会被重置复用,需要保留时使用 {@link ScrollMetrics#copyTo(ScrollMetrics)}
+         */
+        void onScrollMetrics(ScrollMetrics metrics);
+    }
+
+    private final View view;
+    private final ScrollMetrics session = new ScrollMetrics();
+    private final ScrollMetrics total = new ScrollMetrics();
+    private OnScrollMetricsListener onScrollMetricsListener;
+
+    private boolean isActive;
+    private boolean isScrolledInFrame;
+    private int idleFrames;
+    private long lastFrameTimeNanos;
+    private long frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    public ScrollMetricsRecorder(View view) {
+        this.view = view;
+    }
+
+    public void setOnScrollMetricsListener(OnScrollMetricsListener onScrollMetricsListener) {
+        this.onScrollMetricsListener = onScrollMetricsListener;
+    }
+
+    /**
+     * 头部或列表发生了滑动
+     */
+    public void onScroll() {
+        isScrolledInFrame = true;
+        if (isActive) return;
+        isActive = true;
+        idleFrames = 0;
+        lastFrameTimeNanos = 0;
+        Display display = view.getDisplay();
+        float refreshRate = display == null ? 0 : display.getRefreshRate();
+        frameIntervalNanos = refreshRate > 0 ? (long) (1_000_000_000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    // 以下只记录滑动期间的数据
+
+    public void onSync(long nanos) {
+        if (isActive) session.recordSync(nanos);
+    }
+
+    public void onTabSynced() {
+        if (isActive) session.recordTabSync();
+    }
+
+    public void onLayout() {
+        if (isActive) session.recordLayout();
+    }
+
+    public void onHeaderOffsetChanged() {
+        if (isActive) session.recordHeaderOffsetChange();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!isActive) return;
+        if (lastFrameTimeNanos != 0) {
+            session.recordFrame(frameTimeNanos - lastFrameTimeNanos, frameIntervalNanos);
+        }
+        lastFrameTimeNanos = frameTimeNanos;
+
+        if (isScrolledInFrame) {
+            isScrolledInFrame = false;
+            idleFrames = 0;
+        } else if (++idleFrames >= IDLE_FRAMES) {
+            isActive = false;
+            report();
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * 结束当前的滑动,回调已记录的统计
+     */
+    public void stop() {
+        if (isActive) {
+            isActive = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        report();
+    }
+
+    private void report() {
+        if (session.isEmpty()) return;
+        total.add(session);
+        if (onScrollMetricsListener != null) onScrollMetricsListener.onScrollMetrics(session);
+        session.reset();
+    }
+
+    /**
+     * 复制开启统计以来已结束的滑动的统计
+     * @param out
+     */
+    public void getTotal(ScrollMetrics out) {
+        total.copyTo(out);
+    }
+
+    public void reset() {
+        session.reset();
+        total.reset();
+    }
+}
@@ -0,0 +1,345 @@
+package com.ujuz.suspend.scroll;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ujuz.suspend.core.HeightIndex;
+
+/**
+ * 单个RecyclerView的滑动距离计算
+ *
+ * 缓存每个item测量后的高度({@link HeightIndex}),
+ * 滑动距离 = 第一个可见item之前所有item的高度之和 - 第一个可见item的顶部位置
+ * 适用于高度不一致的item,数据插入、删除、刷新后仍然准确
+ *
+ * GridLayoutManager 按行记录高度,行高记在每行第一个item上
+ * StaggeredGridLayoutManager 的item不固定在某一列,position 0 可见时精确计算,
+ * 否则按已测量高度除以列数估算(此时头部已完全收起,不影响联动)
+ *
+ * 滑动距离、是否在顶部/底部及距离末尾的剩余量在onScrolled和layout回调中增量更新,读取时为 O(1),不会遍历子view
+ * adapter可以在attach之后再设置,下一次layout时开始监听
+ */
+public class ScrollOffsetTracker extends RecyclerView.AdapterDataObserver {
+    private final RecyclerView recyclerView;
+    private final HeightIndex heightIndex = new HeightIndex();
+    private RecyclerView.Adapter adapter;
+
+    private int scrollOffset;
+    private boolean isAtTop = true;
+    private boolean isAtBottom = true;
+    // 最后一个可见item之后的item数量及剩余内容的高度,没有可见item时为 Integer.MAX_VALUE
+    private int remainingItemCount = Integer.MAX_VALUE;
+    private int remainingExtent = Integer.MAX_VALUE;
+    // 第一个可见item的位置,数据结构变化时随之调整,没有可见item时为 NO_POSITION
+    private int firstVisiblePosition = RecyclerView.NO_POSITION;
+    // 第一个可见item的顶部相对paddingTop的偏移
+    private int firstVisibleOffset;
+
+    private boolean isAttached;
+    private OnDataChangedListener onDataChangedListener;
+    private OnLayoutListener onLayoutListener;
+
+    /**
+     * 列表的数据结构变化影响了滑动距离: 设置adapter、整体刷新,
+     * 或第一个可见item及其之前的插入、删除、移动(列表没有可见item时任意位置都算)
+     * 只修改内容(onItemRangeChanged,例如payload更新)及可见区域之后的变化不会回调
+     * 回调时列表还未重新layout,可以在本次layout前调整列表的位置
+     */
+    public interface OnDataChangedListener {
+        void onDataChanged(RecyclerView recyclerView);
+    }
+
+    /**
+     * 列表layout完成,滑动距离及剩余量已按本次layout更新
+     * 可见范围之后的追加不会回调onScrolled,需要依赖最新剩余量的判断在这里处理
+     */
+    public interface OnLayoutListener {
+        void onLayout(RecyclerView recyclerView);
+    }
+
+    private final RecyclerView.OnScrollListener onScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            update();
+        }
+    };
+    private final View.OnLayoutChangeListener onLayoutChangeListener =
+            (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+                update();
+                if (onLayoutListener != null) onLayoutListener.onLayout(recyclerView);
+            };
+
+    public ScrollOffsetTracker(@NonNull RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+    }
+
+    public RecyclerView getRecyclerView() {
+        return recyclerView;
+    }
+
+    public void setOnDataChangedListener(OnDataChangedListener onDataChangedListener) {
+        this.onDataChangedListener = onDataChangedListener;
+    }
+
+    public void setOnLayoutListener(OnLayoutListener onLayoutListener) {
+        this.onLayoutListener = onLayoutListener;
+    }
+
+    /**
+     * 开始监听滑动、layout及adapter的数据变化
+     * 需要在其他依赖滑动距离的OnScrollListener之前调用,保证它们读取到的是最新值
+     */
+    public void attach() {
+        if (!isAttached) {
+            isAttached = true;
+            recyclerView.addOnScrollListener(onScrollListener);
+            recyclerView.addOnLayoutChangeListener(onLayoutChangeListener);
+        }
+        updateAdapter();
+        update();
+    }
+
+    /**
+     * 监听recyclerView当前的adapter
+     * @return adapter是否变化
+     */
+    private boolean updateAdapter() {
+        RecyclerView.Adapter newAdapter = recyclerView.getAdapter();
+        if (newAdapter == adapter) return false;
+        if (adapter != null) adapter.unregisterAdapterDataObserver(this);
+        adapter = newAdapter;
+        heightIndex.reset(adapter == null ? 0 : adapter.getItemCount());
+        if (adapter != null) adapter.registerAdapterDataObserver(this);
+        return true;
+    }
+
+    public void detach() {
+        if (isAttached) {
+            isAttached = false;
+            recyclerView.removeOnScrollListener(onScrollListener);
+            recyclerView.removeOnLayoutChangeListener(onLayoutChangeListener);
+        }
+        if (adapter != null) {
+            adapter.unregisterAdapterDataObserver(this);
+            adapter = null;
+        }
+        heightIndex.reset(0);
+    }
+
+    /**
+     * 获取已滑动的距离(像素)
+     * @return
+     */
+    public int getScrollOffset() {
+        return scrollOffset;
+    }
+
+    /**
+     * 是否已在顶部(不能再往下滑)
+     * @return
+     */
+    public boolean isAtTop() {
+        return isAtTop;
+    }
+
+    /**
+     * 是否已在底部(不能再往上滑)
+     * @return
+     */
+    public boolean isAtBottom() {
+        return isAtBottom;
+    }
+
+    /**
+     * 最后一个可见item之后还有多少个item
+     * @return 没有可见item时为 Integer.MAX_VALUE
+     */
+    public int getRemainingItemCount() {
+        return remainingItemCount;
+    }
+
+    /**
+     * 可见区域底部之后剩余内容的高度(像素),未layout的item按可见item的平均高度估算
+     * @return 没有可见item时为 Integer.MAX_VALUE
+     */
+    public int getRemainingExtent() {
+        return remainingExtent;
+    }
+
+    /**
+     * 最近一次滑动或layout时第一个可见item的位置,之后的数据结构变化已调整
+     * 列表回收全部子view(例如离开window时)后仍保留,可用于保存位置快照
+     * @return 没有可见item时为 NO_POSITION
+     */
+    public int getFirstVisiblePosition() {
+        return firstVisiblePosition;
+    }
+
+    /**
+     * 第一个可见item的顶部相对paddingTop的偏移,与 {@link #getFirstVisiblePosition()} 对应
+     * @return
+     */
+    public int getFirstVisibleOffset() {
+        return firstVisibleOffset;
+    }
+
+    /**
+     * 根据当前可见的item更新高度索引、滑动距离、是否在顶部/底部及剩余量
+     */
+    public void update() {
+        // adapter在attach之后才设置或被替换
+        if (isAttached && updateAdapter() && adapter != null && onDataChangedListener != null) {
+            onDataChangedListener.onDataChanged(recyclerView);
+        }
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager == null || adapter == null) {
+            firstVisiblePosition = RecyclerView.NO_POSITION;
+            firstVisibleOffset = 0;
+            scrollOffset = 0;
+            isAtTop = true;
+            isAtBottom = true;
+            remainingItemCount = Integer.MAX_VALUE;
+            remainingExtent = Integer.MAX_VALUE;
+            return;
+        }
+        int type = LayoutManagerHelper.getType(layoutManager);
+
+        int firstPosition = RecyclerView.NO_POSITION;
+        int firstTop = 0;
+        int lastPosition = RecyclerView.NO_POSITION;
+        int maxBottom = Integer.MIN_VALUE;
+        // position 0 的顶部,不可见时为 Integer.MIN_VALUE
+        int zeroTop = Integer.MIN_VALUE;
+        // GridLayoutManager 当前行
+        int rowPosition = RecyclerView.NO_POSITION;
+        int rowHeight = 0;
+
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+
+            RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
+            int top = layoutManager.getDecoratedTop(child) - lp.topMargin;
+            int bottom = layoutManager.getDecoratedBottom(child) + lp.bottomMargin;
+
+            // 顺便更新可见item的高度,未变化时为 O(1)
+            if (type == LayoutManagerHelper.TYPE_GRID) {
+                if (LayoutManagerHelper.getSpanIndex(child) == 0 || rowPosition == RecyclerView.NO_POSITION) {
+                    if (rowPosition != RecyclerView.NO_POSITION) heightIndex.set(rowPosition, rowHeight);
+                    rowPosition = position;
+                    rowHeight = bottom - top;
+                } else {
+                    rowHeight = Math.max(rowHeight, bottom - top);
+                    heightIndex.set(position, 0);
+                }
+            } else {
+                heightIndex.set(position, bottom - top);
+            }
+
+            if (firstPosition == RecyclerView.NO_POSITION || position < firstPosition) {
+                firstPosition = position;
+                firstTop = top;
+            }
+            if (position > lastPosition) lastPosition = position;
+            if (bottom > maxBottom) maxBottom = bottom;
+            if (position == 0) zeroTop = top;
+        }
+        if (rowPosition != RecyclerView.NO_POSITION) heightIndex.set(rowPosition, rowHeight);
+
+        firstVisiblePosition = firstPosition;
+        if (firstPosition == RecyclerView.NO_POSITION) {
+            firstVisibleOffset = 0;
+            scrollOffset = 0;
+            isAtTop = true;
+            isAtBottom = true;
+            remainingItemCount = Integer.MAX_VALUE;
+            remainingExtent = Integer.MAX_VALUE;
+            return;
+        }
+
+        int paddingTop = recyclerView.getPaddingTop();
+        firstVisibleOffset = firstTop - paddingTop;
+        if (zeroTop != Integer.MIN_VALUE) {
+            scrollOffset = paddingTop - zeroTop;
+        } else if (type == LayoutManagerHelper.TYPE_STAGGERED) {
+            int spanCount = LayoutManagerHelper.getSpanCount(layoutManager);
+            scrollOffset = heightIndex.prefixSum(firstPosition) / spanCount + paddingTop - firstTop;
+        } else {
+            scrollOffset = heightIndex.prefixSum(firstPosition) + paddingTop - firstTop;
+        }
+
+        isAtTop = scrollOffset <= 0;
+        int viewportBottom = recyclerView.getHeight() - recyclerView.getPaddingBottom();
+        isAtBottom = lastPosition >= adapter.getItemCount() - 1 && maxBottom <= viewportBottom;
+
+        remainingItemCount = Math.max(0, adapter.getItemCount() - 1 - lastPosition);
+        int averageHeight = (maxBottom - firstTop) / (lastPosition - firstPosition + 1);
+        remainingExtent = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(0, maxBottom - viewportBottom) + (long) remainingItemCount * averageHeight);
+    }
+
+    @Override
+    public void onChanged() {
+        heightIndex.reset(adapter == null ? 0 : adapter.getItemCount());
+        firstVisiblePosition = RecyclerView.NO_POSITION;
+        notifyDataChanged();
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+        // 内容变化后高度可能变化,重新测量;位置不变,不需要重新定位
+        for (int i = positionStart; i < positionStart + itemCount; i++) {
+            heightIndex.invalidate(i);
+        }
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+        heightIndex.insert(positionStart, itemCount);
+        boolean isBeforeFirst = isBeforeFirstVisible(positionStart);
+        if (firstVisiblePosition != RecyclerView.NO_POSITION && isBeforeFirst) firstVisiblePosition += itemCount;
+        if (isBeforeFirst) notifyDataChanged();
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+        heightIndex.remove(positionStart, itemCount);
+        boolean isBeforeFirst = isBeforeFirstVisible(positionStart);
+        if (firstVisiblePosition != RecyclerView.NO_POSITION && isBeforeFirst) {
+            firstVisiblePosition = Math.max(positionStart, firstVisiblePosition - itemCount);
+        }
+        if (isBeforeFirst) notifyDataChanged();
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        for (int i = 0; i < itemCount; i++) {
+            heightIndex.move(fromPosition + i, toPosition + i);
+        }
+        boolean isBeforeFirst = isBeforeFirstVisible(Math.min(fromPosition, toPosition));
+        if (firstVisiblePosition != RecyclerView.NO_POSITION && isBeforeFirst) {
+            if (fromPosition == firstVisiblePosition) {
+                firstVisiblePosition = toPosition;
+            } else if (fromPosition < firstVisiblePosition && toPosition >= firstVisiblePosition) {
+                firstVisiblePosition--;
+            } else if (fromPosition > firstVisiblePosition && toPosition <= firstVisiblePosition) {
+                firstVisiblePosition++;
+            }
+        }
+        if (isBeforeFirst) notifyDataChanged();
+    }
+
+    /**
+     * 该位置的结构变化是否会改变第一个可见item之前的内容
+     */
+    private boolean isBeforeFirstVisible(int position) {
+        return firstVisiblePosition == RecyclerView.NO_POSITION || position <= firstVisiblePosition;
+    }
+
+    private void notifyDataChanged() {
+        if (onDataChangedListener != null) onDataChangedListener.onDataChanged(recyclerView);
+    }
+}
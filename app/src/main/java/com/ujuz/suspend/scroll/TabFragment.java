@@ -1,21 +1,16 @@
 package com.ujuz.suspend.scroll;
 
-import androidx.fragment.app.Fragment;
-
-import com.ameng.suspend.SuspendRecyclerView;
+import com.ujuz.suspend.BaseFragment;
+import com.ujuz.suspend.SuspendRecyclerView;
 
 /**
+ * 可见性回调见 {@link BaseFragment}
+ *
  * @author ameng
  * Create on 2020-05-29 21:06
  * Link:amengnn1029@gmail.com
  */
-public abstract class TabFragment extends Fragment {
-
-    /**
-     * 这里需要赋值 recyclerView
-     */
-    public SuspendRecyclerView tabRecyclerView;
-
+public abstract class TabFragment extends BaseFragment {
 
     /**
      * 这里需要赋值 recyclerView
@@ -0,0 +1,100 @@
+package com.ujuz.suspend.scroll;
+
+import com.ujuz.suspend.core.ScrollCoordinator;
+
+import java.util.Arrays;
+
+/**
+ * 各tab的分页加载状态
+ *
+ * 列表距离末尾的剩余item数或剩余高度(由 {@link ScrollOffsetTracker} 在滑动及layout时计算)
+ * 小于预加载距离时触发一次加载,直到调用 {@link #finish(int, boolean)} 才会再次触发
+ * 加载失败({@link #fail(int)})后只在列表往末尾滑动时重试,不会因为layout反复触发
+ * tab可以只加载第一页,之后随浏览按页追加
+ */
+public class TabPaging {
+    public static final int DEFAULT_PREFETCH_ITEM_COUNT = 5;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_LOADING = 1;
+    // 没有更多数据
+    private static final int STATE_END = 2;
+    // 加载失败,等待往末尾滑动时重试
+    private static final int STATE_FAILED = 3;
+
+    /**
+     * 某个tab需要加载下一页
+     */
+    public interface OnLoadMoreListener {
+        /**
+         * 加载完成后需要调用 SuspendViewPager#finishLoadMore,失败时调用 SuspendViewPager#failLoadMore
+         * @param position tab的位置
+         */
+        void onLoadMore(int position);
+    }
+
+    private int[] states = new int[0];
+    private int prefetchItemCount = DEFAULT_PREFETCH_ITEM_COUNT;
+    private int prefetchDistance;
+
+    /**
+     * 设置预加载距离,满足任意一个即触发
+     * @param itemCount 剩余item数
+     * @param distance 剩余内容高度(像素),0 表示只按item数
+     */
+    public void setPrefetch(int itemCount, int distance) {
+        prefetchItemCount = Math.max(0, itemCount);
+        prefetchDistance = Math.max(0, distance);
+    }
+
+    public void setTabCount(int count) {
+        states = Arrays.copyOf(states, count);
+    }
+
+    public void insertTab(int position) {
+        states = TabScrollSync.insert(states, position, STATE_IDLE);
+    }
+
+    public void removeTab(int position) {
+        states = TabScrollSync.remove(states, position);
+    }
+
+    public void moveTab(int from, int to) {
+        ScrollCoordinator.moveElement(states, from, to);
+    }
+
+    /**
+     * 检查某个tab是否需要加载下一页,需要时标记为加载中
+     * @param position
+     * @param tracker
+     * @param isScrollingToEnd 列表正往末尾滑动,加载失败的tab此时重试
+     * @return 是否需要回调加载
+     */
+    public boolean check(int position, ScrollOffsetTracker tracker, boolean isScrollingToEnd) {
+        if (position < 0 || position >= states.length || tracker == null) return false;
+        int state = states[position];
+        if (state != STATE_IDLE && !(state == STATE_FAILED && isScrollingToEnd)) return false;
+        if (tracker.getRemainingItemCount() > prefetchItemCount && tracker.getRemainingExtent() >= prefetchDistance) return false;
+        states[position] = STATE_LOADING;
+        return true;
+    }
+
+    /**
+     * 一页加载完成
+     * @param position
+     * @param hasMore false 之后不再触发,刷新后需要再次调用并传入true
+     */
+    public void finish(int position, boolean hasMore) {
+        if (position < 0 || position >= states.length) return;
+        states[position] = hasMore ? STATE_IDLE : STATE_END;
+    }
+
+    /**
+     * 一页加载失败
+     * @param position
+     */
+    public void fail(int position) {
+        if (position < 0 || position >= states.length) return;
+        states[position] = STATE_FAILED;
+    }
+}
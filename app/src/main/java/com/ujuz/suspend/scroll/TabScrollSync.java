@@ -0,0 +1,268 @@
+package com.ujuz.suspend.scroll;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.ujuz.suspend.core.ScrollCoordinator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多个tab之间的滑动同步,目标偏移及版本号由 {@link ScrollCoordinator} 维护
+ *
+ * 滑动时只记录目标偏移量并递增版本号,不会去滑动每一个RecyclerView
+ * 当某个tab即将可见(onPageScrolled/onPageSelected)时再调用 {@link #apply} 同步到目标位置,
+ * 这样每一帧的开销与tab数量无关
+ *
+ * 页面被销毁时只保留一份快照(第一个可见item的位置、像素偏移、当时的头部偏移),
+ * 页面重建后在首次绘制前恢复
+ */
+public class TabScrollSync {
+    private final ScrollCoordinator coordinator;
+
+    // 已销毁页面的快照,NO_POSITION 表示没有快照
+    private int[] snapshotPositions = new int[0];
+    private int[] snapshotOffsets = new int[0];
+    private int[] snapshotHeaderOffsets = new int[0];
+    // 快照时列表已滑动的距离,用于判断独立位置模式下能否保持快照位置
+    private int[] snapshotScrollYs = new int[0];
+
+    public TabScrollSync(ScrollCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * 设置tab数量,已有tab的同步状态保留
+     * @param count
+     */
+    public void setTabCount(int count) {
+        int oldCount = snapshotPositions.length;
+        coordinator.setTabCount(count);
+        snapshotPositions = Arrays.copyOf(snapshotPositions, count);
+        snapshotOffsets = Arrays.copyOf(snapshotOffsets, count);
+        snapshotHeaderOffsets = Arrays.copyOf(snapshotHeaderOffsets, count);
+        snapshotScrollYs = Arrays.copyOf(snapshotScrollYs, count);
+        // 新增的tab需要同步
+        for (int i = oldCount; i < count; i++) {
+            snapshotPositions[i] = RecyclerView.NO_POSITION;
+        }
+    }
+
+    public int getTabCount() {
+        return coordinator.getTabCount();
+    }
+
+    /**
+     * 插入一个tab,没有快照,在可见时同步到目标偏移
+     * @param position
+     */
+    public void insertTab(int position) {
+        coordinator.insertTab(position);
+        snapshotPositions = insert(snapshotPositions, position, RecyclerView.NO_POSITION);
+        snapshotOffsets = insert(snapshotOffsets, position, 0);
+        snapshotHeaderOffsets = insert(snapshotHeaderOffsets, position, 0);
+        snapshotScrollYs = insert(snapshotScrollYs, position, 0);
+    }
+
+    public void removeTab(int position) {
+        coordinator.removeTab(position);
+        snapshotPositions = remove(snapshotPositions, position);
+        snapshotOffsets = remove(snapshotOffsets, position);
+        snapshotHeaderOffsets = remove(snapshotHeaderOffsets, position);
+        snapshotScrollYs = remove(snapshotScrollYs, position);
+    }
+
+    /**
+     * 移动tab,快照及同步状态跟随tab
+     * @param from
+     * @param to
+     */
+    public void moveTab(int from, int to) {
+        coordinator.moveTab(from, to);
+        ScrollCoordinator.moveElement(snapshotPositions, from, to);
+        ScrollCoordinator.moveElement(snapshotOffsets, from, to);
+        ScrollCoordinator.moveElement(snapshotHeaderOffsets, from, to);
+        ScrollCoordinator.moveElement(snapshotScrollYs, from, to);
+    }
+
+    static int[] insert(int[] array, int position, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position, result, position + 1, array.length - position);
+        result[position] = value;
+        return result;
+    }
+
+    static int[] remove(int[] array, int position) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, position);
+        System.arraycopy(array, position + 1, result, position, result.length - position);
+        return result;
+    }
+
+    /**
+     * 标记某个tab需要重新同步到目标偏移
+     * @param position
+     */
+    public void markPending(int position) {
+        coordinator.markPending(position);
+    }
+
+    public boolean isPending(int position) {
+        return coordinator.isPending(position);
+    }
+
+    /**
+     * 如果该tab待同步,则滑动到目标位置
+     * 列表还没有内容(延迟加载)时保持待同步,数据到达后再同步
+     * 独立位置模式下头部已收起且列表已滑过头部范围时保持原位置
+     * @param position
+     * @param recyclerView
+     * @param scrollY 该列表已滑动的距离
+     * @return 是否进行了同步
+     */
+    public boolean apply(int position, RecyclerView recyclerView, int scrollY) {
+        if (!coordinator.isPending(position) || recyclerView == null) return false;
+        if (coordinator.isPositionKept(scrollY)) {
+            coordinator.markSynced(position);
+            return false;
+        }
+
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        RecyclerView.Adapter adapter = recyclerView.getAdapter();
+        if (layoutManager == null || adapter == null || adapter.getItemCount() == 0) return false;
+
+        LayoutManagerHelper.scrollToPositionWithOffset(layoutManager, 0, coordinator.getTargetOffset());
+        coordinator.markSynced(position);
+        return true;
+    }
+
+    /**
+     * 页面销毁前保存快照
+     * 位置取自tracker最近一次滑动或layout的结果,不读取子view: 离开window时列表可能已回收全部子view
+     * @param position
+     * @param tracker 该列表的滑动距离
+     * @param headerOffset 当前头部的偏移量
+     */
+    public void saveSnapshot(int position, ScrollOffsetTracker tracker, int headerOffset) {
+        if (position < 0 || position >= snapshotPositions.length || tracker == null) return;
+        snapshotPositions[position] = tracker.getFirstVisiblePosition();
+        snapshotOffsets[position] = tracker.getFirstVisibleOffset();
+        snapshotHeaderOffsets[position] = headerOffset;
+        snapshotScrollYs[position] = tracker.getScrollOffset();
+    }
+
+    /**
+     * 导出每个tab的位置,用于保存状态
+     * 已创建的tab取当前位置,已销毁的tab取快照,待同步的tab不保存(恢复后同步到目标偏移),
+     * 独立位置模式下保持位置的快照同样保存
+     * @param recyclerViews 与tab一一对应,未创建的为null
+     * @param headerOffset 当前头部的偏移量
+     * @param positions 输出第一个item的位置,NO_POSITION 表示不保存
+     * @param offsets 输出第一个item相对头部间距的偏移
+     */
+    public void saveState(List<RecyclerView> recyclerViews, int headerOffset, int[] positions, int[] offsets) {
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = RecyclerView.NO_POSITION;
+            offsets[i] = 0;
+            RecyclerView recyclerView = i < recyclerViews.size() ? recyclerViews.get(i) : null;
+            boolean isSnapshotKept = recyclerView == null && hasSnapshot(i) && coordinator.isPositionKept(snapshotScrollYs[i]);
+            if (coordinator.isPending(i) && !isSnapshotKept) continue;
+
+            if (recyclerView != null) {
+                View firstChild = findFirstChild(recyclerView);
+                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+                if (firstChild == null || layoutManager == null) continue;
+                positions[i] = recyclerView.getChildAdapterPosition(firstChild);
+                offsets[i] = layoutManager.getDecoratedTop(firstChild) - recyclerView.getPaddingTop();
+            } else if (isSnapshotKept || (hasSnapshot(i) && snapshotHeaderOffsets[i] == headerOffset)) {
+                positions[i] = snapshotPositions[i];
+                offsets[i] = snapshotOffsets[i];
+            }
+        }
+    }
+
+    /**
+     * 恢复保存的位置,作为各tab的快照在页面关联时(首次layout之前)生效
+     * 需要先恢复头部偏移及目标偏移
+     * @param headerOffset 保存时头部的偏移量
+     * @param positions
+     * @param offsets
+     */
+    public void restoreState(int headerOffset, int[] positions, int[] offsets) {
+        for (int i = 0; i < positions.length && i < snapshotPositions.length; i++) {
+            snapshotPositions[i] = positions[i];
+            snapshotOffsets[i] = offsets[i];
+            snapshotHeaderOffsets[i] = headerOffset;
+            snapshotScrollYs[i] = 0;
+            if (positions[i] == RecyclerView.NO_POSITION) {
+                coordinator.markPending(i);
+            } else {
+                coordinator.markSynced(i);
+            }
+        }
+    }
+
+    /**
+     * 头部间距(paddingTop)变化后,保持列表相对间距的位置不变,在列表重新layout之前调用
+     * 否则LayoutManager会保持item的绝对位置,列表相对头部错开间距变化的距离
+     * @param recyclerView
+     * @param oldPaddingTop 修改前的paddingTop
+     */
+    public void keepPosition(RecyclerView recyclerView, int oldPaddingTop) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        View firstChild = findFirstChild(recyclerView);
+        if (layoutManager == null || firstChild == null) return;
+        LayoutManagerHelper.scrollToPositionWithOffset(layoutManager, recyclerView.getChildAdapterPosition(firstChild),
+                layoutManager.getDecoratedTop(firstChild) - oldPaddingTop);
+    }
+
+    /**
+     * 获取position最小的子view
+     * @param recyclerView
+     * @return
+     */
+    private static View findFirstChild(RecyclerView recyclerView) {
+        View firstChild = null;
+        int firstPosition = RecyclerView.NO_POSITION;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int childPosition = recyclerView.getChildAdapterPosition(child);
+            if (childPosition == RecyclerView.NO_POSITION) continue;
+            if (firstPosition == RecyclerView.NO_POSITION || childPosition < firstPosition) {
+                firstPosition = childPosition;
+                firstChild = child;
+            }
+        }
+        return firstChild;
+    }
+
+    public boolean hasSnapshot(int position) {
+        return position >= 0 && position < snapshotPositions.length && snapshotPositions[position] != RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * 页面重建后恢复位置,在首次layout之前调用,不会出现跳动
+     * 销毁后头部位置发生过变化则同步到目标偏移,否则恢复到快照位置
+     * 独立位置模式下头部已收起且快照已滑过头部范围时,同样恢复到快照位置
+     * @param position
+     * @param recyclerView
+     * @param headerOffset 当前头部的偏移量
+     */
+    public void restore(int position, RecyclerView recyclerView, int headerOffset) {
+        boolean isSnapshotValid = hasSnapshot(position) && (coordinator.isPending(position)
+                ? coordinator.isPositionKept(snapshotScrollYs[position])
+                : snapshotHeaderOffsets[position] == headerOffset);
+        if (!isSnapshotValid) {
+            // 新关联的列表还没有滑动距离
+            apply(position, recyclerView, 0);
+        } else {
+            coordinator.markSynced(position);
+            LayoutManagerHelper.scrollToPositionWithOffset(recyclerView.getLayoutManager(),
+                    snapshotPositions[position], snapshotOffsets[position]);
+        }
+        snapshotPositions[position] = RecyclerView.NO_POSITION;
+    }
+}
@@ -0,0 +1,101 @@
+package com.ujuz.suspend.scroll;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 为即将创建的tab页面预先创建ViewHolder,放入所有tab共享的缓存池
+ *
+ * 左右滑动开始时按当前列表可见item的viewType及数量计算需要的ViewHolder,
+ * 在主线程空闲时(两帧之间)每次只创建一个,新页面layout时直接从缓存池取出绑定,不需要在滑动中inflate
+ * 要求各tab的adapter使用相同的viewType定义
+ */
+public class TabViewPrefetcher implements MessageQueue.IdleHandler {
+    // 每种viewType额外预留的数量,用于滑动时新出现的item
+    private static final int EXTRA_HOLDERS_PER_TYPE = 1;
+
+    private RecyclerView.RecycledViewPool pool;
+    // 创建ViewHolder使用的adapter及parent
+    private RecyclerView templateRecyclerView;
+    // 待创建的viewType及数量
+    private final SparseIntArray pendingCounts = new SparseIntArray();
+    private boolean isScheduled;
+
+    /**
+     * 按模板列表当前可见的item补足缓存池
+     * @param templateRecyclerView 当前列表
+     * @param pool 共享的缓存池
+     */
+    public void prefetch(RecyclerView templateRecyclerView, RecyclerView.RecycledViewPool pool) {
+        if (templateRecyclerView == null || pool == null || templateRecyclerView.getAdapter() == null) return;
+        this.templateRecyclerView = templateRecyclerView;
+        this.pool = pool;
+
+        pendingCounts.clear();
+        for (int i = 0; i < templateRecyclerView.getChildCount(); i++) {
+            View child = templateRecyclerView.getChildAt(i);
+            RecyclerView.ViewHolder holder = templateRecyclerView.getChildViewHolder(child);
+            if (holder == null) continue;
+            int viewType = holder.getItemViewType();
+            pendingCounts.put(viewType, pendingCounts.get(viewType, EXTRA_HOLDERS_PER_TYPE) + 1);
+        }
+        // 减去缓存池中已有的
+        for (int i = pendingCounts.size() - 1; i >= 0; i--) {
+            int missing = pendingCounts.valueAt(i) - pool.getRecycledViewCount(pendingCounts.keyAt(i));
+            if (missing > 0) {
+                pendingCounts.setValueAt(i, missing);
+            } else {
+                pendingCounts.removeAt(i);
+            }
+        }
+
+        if (pendingCounts.size() > 0 && !isScheduled) {
+            isScheduled = true;
+            Looper.myQueue().addIdleHandler(this);
+        }
+    }
+
+    /**
+     * 取消尚未创建的ViewHolder
+     */
+    public void cancel() {
+        pendingCounts.clear();
+        templateRecyclerView = null;
+        pool = null;
+        if (isScheduled) {
+            isScheduled = false;
+            Looper.myQueue().removeIdleHandler(this);
+        }
+    }
+
+    @Override
+    public boolean queueIdle() {
+        RecyclerView.Adapter adapter = templateRecyclerView == null ? null : templateRecyclerView.getAdapter();
+        if (adapter == null || pendingCounts.size() == 0) {
+            cancel();
+            return false;
+        }
+
+        int viewType = pendingCounts.keyAt(0);
+        int remaining = pendingCounts.valueAt(0) - 1;
+        if (remaining > 0) {
+            pendingCounts.setValueAt(0, remaining);
+        } else {
+            pendingCounts.removeAt(0);
+        }
+        pool.putRecycledView(adapter.createViewHolder(templateRecyclerView, viewType));
+
+        // 一次空闲只创建一个,剩余的在下一次空闲时创建
+        if (pendingCounts.size() == 0) {
+            isScheduled = false;
+            templateRecyclerView = null;
+            pool = null;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,380 @@
+package com.ujuz.suspend;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.tabs.TabLayout;
+import com.ujuz.suspend.adapter.ViewPagerAdapter;
+
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 性能回归测试使用的 SuspendViewPager 环境
+ * 可配置tab数量、头部高度、悬浮部分高度、item数量及高度,
+ * 统计整个视图的layout次数及每个列表的 scrollToPositionWithOffset 调用次数
+ *
+ * item高度固定,测试中的滑动距离按 position * itemHeight 独立计算,不依赖被测的 ScrollOffsetTracker
+ */
+public class SuspendTestHarness {
+    private static final int FRAME_MILLIS = 16;
+
+    public final int tabCount;
+    public final int headerHeight;
+    public final int stickyHeight;
+    public final int itemCount;
+    public final int itemHeight;
+
+    public final ActivityController<MainActivity> controller;
+    public final CountingSuspendViewPager suspendViewPager;
+    public final List<CountingTabFragment> fragments = new ArrayList<>();
+
+    private long downTime;
+    private float touchX;
+    private float touchY;
+    // 空的帧回调,只用于提前请求下一帧的vsync
+    private final Choreographer.FrameCallback vsyncFrameCallback = frameTimeNanos -> {
+    };
+
+    public SuspendTestHarness(int tabCount, int headerHeight, int stickyHeight, int itemCount, int itemHeight) {
+        this.tabCount = tabCount;
+        this.headerHeight = headerHeight;
+        this.stickyHeight = stickyHeight;
+        this.itemCount = itemCount;
+        this.itemHeight = itemHeight;
+
+        controller = Robolectric.buildActivity(MainActivity.class).setup();
+        MainActivity activity = controller.get();
+
+        suspendViewPager = new CountingSuspendViewPager(activity);
+        activity.setContentView(suspendViewPager,
+                new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+        // 头部需要可点击,否则后续的MOVE事件不会分发给头部
+        View headerView = new View(activity);
+        headerView.setClickable(true);
+        headerView.setLayoutParams(new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, headerHeight - stickyHeight));
+        TabLayout tabLayout = new TabLayout(activity);
+        tabLayout.setLayoutParams(new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, stickyHeight));
+
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < tabCount; i++) {
+            fragments.add(CountingTabFragment.newInstance(itemCount, itemHeight));
+            titles.add("tab" + i);
+        }
+        suspendViewPager.addHeaderView(headerView)
+                .addStickHeaderView(tabLayout)
+                .setViewPagerAdapter(new ViewPagerAdapter(activity.getSupportFragmentManager(), fragments, titles));
+        idle();
+        // 预热Choreographer: 创建vsync接收器及回调记录的对象池
+        requestVsync();
+        frame();
+    }
+
+    public HeaderContainer getHeader() {
+        return suspendViewPager.mHeaderContainer;
+    }
+
+    public int getCurrentTab() {
+        return suspendViewPager.getCurrentItem();
+    }
+
+    public CountingRecyclerView getRecyclerView(int tab) {
+        return (CountingRecyclerView) fragments.get(tab).tabRecyclerView;
+    }
+
+    public CountingRecyclerView getCurrentRecyclerView() {
+        return getRecyclerView(getCurrentTab());
+    }
+
+    public void selectTab(int tab) {
+        suspendViewPager.setCurrentItem(tab, false);
+        idle();
+    }
+
+    // ---------------- 计数 ----------------
+
+    public void resetCounters() {
+        suspendViewPager.layoutCount = 0;
+        for (CountingTabFragment fragment : fragments) {
+            if (fragment.layoutManager != null) fragment.layoutManager.scrollToPositionCount = 0;
+            if (fragment.tabRecyclerView != null) ((CountingRecyclerView) fragment.tabRecyclerView).requestLayoutCount = 0;
+        }
+    }
+
+    public int getLayoutCount() {
+        return suspendViewPager.layoutCount;
+    }
+
+    public int getScrollToPositionCount(int tab) {
+        CountingLayoutManager layoutManager = fragments.get(tab).layoutManager;
+        return layoutManager == null ? 0 : layoutManager.scrollToPositionCount;
+    }
+
+    /**
+     * 除指定tab外其他tab的 scrollToPositionWithOffset 调用次数之和
+     * @param tab
+     * @return
+     */
+    public int getScrollToPositionCountExcept(int tab) {
+        int count = 0;
+        for (int i = 0; i < tabCount; i++) {
+            if (i != tab) count += getScrollToPositionCount(i);
+        }
+        return count;
+    }
+
+    /**
+     * 除指定tab外其他tab的 requestLayout 调用次数之和
+     * @param tab
+     * @return
+     */
+    public int getRequestLayoutCountExcept(int tab) {
+        int count = 0;
+        for (int i = 0; i < tabCount; i++) {
+            if (i != tab && fragments.get(i).tabRecyclerView != null) {
+                count += ((CountingRecyclerView) fragments.get(i).tabRecyclerView).requestLayoutCount;
+            }
+        }
+        return count;
+    }
+
+    // ---------------- 滑动距离 ----------------
+
+    /**
+     * 根据第一个可见item计算列表已滑动的距离
+     * @param recyclerView
+     * @return
+     */
+    public int measureScrollY(RecyclerView recyclerView) {
+        int firstPosition = RecyclerView.NO_POSITION;
+        int firstTop = 0;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+            if (firstPosition == RecyclerView.NO_POSITION || position < firstPosition) {
+                firstPosition = position;
+                firstTop = child.getTop();
+            }
+        }
+        if (firstPosition == RecyclerView.NO_POSITION) return 0;
+        return firstPosition * itemHeight + recyclerView.getPaddingTop() - firstTop;
+    }
+
+    /**
+     * 列表滑动距离对应的头部偏移量
+     * @param scrollY
+     * @return
+     */
+    public int expectedHeaderOffset(int scrollY) {
+        return Math.min(0, Math.max(-scrollY, stickyHeight - headerHeight));
+    }
+
+    public int getHeaderTranslation() {
+        return (int) getHeader().getTranslationY();
+    }
+
+    // ---------------- 帧 ----------------
+
+    /**
+     * 执行下一帧: 帧回调、layout
+     */
+    public void frame() {
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    /**
+     * 提前请求下一帧的vsync,与设备上输入事件到达时下一帧已在排队一致
+     * 之后本帧内的帧回调请求只进入Choreographer的回调队列(对象池);
+     * Robolectric 模拟vsync请求时通过反射分派会分配对象(设备上不会),统计内存分配前调用,避免计入
+     */
+    public void requestVsync() {
+        Choreographer.getInstance().postFrameCallback(vsyncFrameCallback);
+    }
+
+    // ---------------- 触摸 ----------------
+
+    /**
+     * 在头部可见部分的中间按下
+     * 不在悬浮部分按下,避免抬起时点击到TabLayout切换页面
+     */
+    public void touchDownOnHeader() {
+        int visibleBottom = getHeaderTranslation() + headerHeight - stickyHeight;
+        if (visibleBottom <= 0) throw new IllegalStateException("头部已收起,只剩悬浮部分");
+        touchDown(visibleBottom / 2f);
+    }
+
+    /**
+     * 在头部下方的列表区域按下
+     */
+    public void touchDownOnList() {
+        touchDown(getHeaderTranslation() + headerHeight + itemHeight / 2f);
+    }
+
+    private void touchDown(float y) {
+        downTime = SystemClock.uptimeMillis();
+        touchX = suspendViewPager.getWidth() / 2f;
+        touchY = y;
+        dispatch(MotionEvent.ACTION_DOWN, downTime);
+    }
+
+    /**
+     * 手指移动
+     * @param dy 向下为正
+     * @param eventTime
+     */
+    public void touchMove(float dy, long eventTime) {
+        touchY += dy;
+        dispatch(MotionEvent.ACTION_MOVE, eventTime);
+    }
+
+    public void touchUp(long eventTime) {
+        dispatch(MotionEvent.ACTION_UP, eventTime);
+    }
+
+    /**
+     * 取消触摸,不会产生惯性滑动
+     * @param eventTime
+     */
+    public void touchCancel(long eventTime) {
+        dispatch(MotionEvent.ACTION_CANCEL, eventTime);
+    }
+
+    private void dispatch(int action, long eventTime) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, touchX, touchY, 0);
+        suspendViewPager.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 统计layout次数的 SuspendViewPager,列表或头部请求layout都会经过这里
+     */
+    public static class CountingSuspendViewPager extends SuspendViewPager {
+        public int layoutCount;
+
+        public CountingSuspendViewPager(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            layoutCount++;
+            super.onLayout(changed, l, t, r, b);
+        }
+    }
+
+    public static class CountingRecyclerView extends RecyclerView {
+        public int requestLayoutCount;
+
+        public CountingRecyclerView(@NonNull Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            requestLayoutCount++;
+            super.requestLayout();
+        }
+    }
+
+    /**
+     * 统计同步滑动的次数
+     */
+    public static class CountingLayoutManager extends LinearLayoutManager {
+        public int scrollToPositionCount;
+
+        public CountingLayoutManager(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void scrollToPositionWithOffset(int position, int offset) {
+            scrollToPositionCount++;
+            super.scrollToPositionWithOffset(position, offset);
+        }
+
+        @Override
+        public void scrollToPosition(int position) {
+            scrollToPositionCount++;
+            super.scrollToPosition(position);
+        }
+    }
+
+    public static class CountingTabFragment extends BaseFragment {
+        private static final String ITEM_COUNT = "itemCount";
+        private static final String ITEM_HEIGHT = "itemHeight";
+
+        public CountingLayoutManager layoutManager;
+
+        public static CountingTabFragment newInstance(int itemCount, int itemHeight) {
+            Bundle args = new Bundle();
+            args.putInt(ITEM_COUNT, itemCount);
+            args.putInt(ITEM_HEIGHT, itemHeight);
+            CountingTabFragment fragment = new CountingTabFragment();
+            fragment.setArguments(args);
+            return fragment;
+        }
+
+        @Override
+        public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+            Bundle args = requireArguments();
+            CountingRecyclerView recyclerView = new CountingRecyclerView(requireContext());
+            layoutManager = new CountingLayoutManager(requireContext());
+            recyclerView.setLayoutManager(layoutManager);
+            recyclerView.setAdapter(new FixedHeightAdapter(args.getInt(ITEM_COUNT), args.getInt(ITEM_HEIGHT)));
+            tabRecyclerView = recyclerView;
+            return recyclerView;
+        }
+    }
+
+    static class FixedHeightAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        private final int itemCount;
+        private final int itemHeight;
+
+        FixedHeightAdapter(int itemCount, int itemHeight) {
+            this.itemCount = itemCount;
+            this.itemHeight = itemHeight;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = new View(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, itemHeight));
+            return new RecyclerView.ViewHolder(view) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return itemCount;
+        }
+    }
+}
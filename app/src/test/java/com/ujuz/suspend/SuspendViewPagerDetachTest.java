@@ -0,0 +1,78 @@
+package com.ujuz.suspend;
+
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * SuspendViewPager 离开window后重新attach,列表恢复到离开前的位置,头部保持不动
+ *
+ * 共享缓存池时列表在离开window时回收全部item,且先于 SuspendViewPager 自身的 onDetachedFromWindow,
+ * 位置快照不能依赖子view
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, qualifiers = "w360dp-h640dp-mdpi")
+public class SuspendViewPagerDetachTest {
+    private static final int TAB_COUNT = 3;
+    private static final int HEADER_HEIGHT = 300;
+    private static final int STICKY_HEIGHT = 60;
+    private static final int ITEM_COUNT = 50;
+    private static final int ITEM_HEIGHT = 80;
+
+    private SuspendTestHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new SuspendTestHarness(TAB_COUNT, HEADER_HEIGHT, STICKY_HEIGHT, ITEM_COUNT, ITEM_HEIGHT);
+        harness.suspendViewPager.setSharedRecycledViewPool(new RecyclerView.RecycledViewPool());
+        harness.frame();
+    }
+
+    @After
+    public void tearDown() {
+        harness.controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void reattach_restoresListUnderCollapsedHeader() {
+        assertRestoredAfterReattach(HEADER_HEIGHT + ITEM_HEIGHT);
+    }
+
+    @Test
+    public void reattach_restoresListUnderPartiallyCollapsedHeader() {
+        assertRestoredAfterReattach((HEADER_HEIGHT - STICKY_HEIGHT) / 2);
+    }
+
+    private void assertRestoredAfterReattach(int scrollY) {
+        RecyclerView recyclerView = harness.getCurrentRecyclerView();
+        recyclerView.scrollBy(0, scrollY);
+        harness.frame();
+        int headerOffset = harness.getHeaderTranslation();
+        assertEquals(harness.expectedHeaderOffset(scrollY), headerOffset);
+
+        ViewGroup parent = (ViewGroup) harness.suspendViewPager.getParent();
+        parent.removeView(harness.suspendViewPager);
+        harness.idle();
+        assertEquals("共享缓存池时离开window应回收全部item", 0, recyclerView.getChildCount());
+
+        parent.addView(harness.suspendViewPager,
+                new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        harness.idle();
+        harness.frame();
+
+        assertSame(recyclerView, harness.getCurrentRecyclerView());
+        assertEquals("重新关联后应恢复头部间距", HEADER_HEIGHT, recyclerView.getPaddingTop());
+        assertEquals(headerOffset, harness.getHeaderTranslation());
+        assertEquals("列表应恢复到离开window前的位置", scrollY, harness.measureScrollY(recyclerView));
+    }
+}
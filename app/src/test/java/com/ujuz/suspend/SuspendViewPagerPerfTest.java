@@ -0,0 +1,268 @@
+package com.ujuz.suspend;
+
+import android.os.SystemClock;
+import android.view.ViewConfiguration;
+
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 滑动联动的性能回归测试
+ *
+ * 按脚本回放头部及列表的拖动、惯性滑动,检查每一帧的开销预算:
+ * 1、头部拖动: 每帧最多一次layout、当前tab最多一次 scrollToPositionWithOffset,其他tab不滑动
+ * 2、列表拖动: 不触发layout,其他tab不滑动也不请求layout
+ * 3、切换tab: 待同步的tab只同步一次
+ * 4、每个滑动事件不创建对象,包括每帧第一次事件请求帧回调的开销
+ * 每一帧结束后头部偏移与当前列表的滑动距离逐像素一致
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 28, qualifiers = "w360dp-h640dp-mdpi")
+public class SuspendViewPagerPerfTest {
+    // 每帧内的MOVE事件数,验证一帧内的多次拖动只同步一次
+    private static final int EVENTS_PER_FRAME = 3;
+    private static final int DRAG_STEP = 4;
+    private static final int MAX_FLING_FRAMES = 600;
+    // 每个事件平均分配的字节数上限,装箱、迭代器、lambda等都会超出
+    private static final long ALLOCATION_BYTES_PER_EVENT = 8;
+    private static final int ALLOCATION_FRAMES = 500;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "tabs={0} header={1}/{2} items={3}x{4}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {2, 300, 60, 50, 80},
+                {5, 480, 100, 200, 60},
+                {10, 240, 48, 30, 120},
+        });
+    }
+
+    private final int tabCount;
+    private final int headerHeight;
+    private final int stickyHeight;
+    private final int itemCount;
+    private final int itemHeight;
+
+    private SuspendTestHarness harness;
+
+    public SuspendViewPagerPerfTest(int tabCount, int headerHeight, int stickyHeight, int itemCount, int itemHeight) {
+        this.tabCount = tabCount;
+        this.headerHeight = headerHeight;
+        this.stickyHeight = stickyHeight;
+        this.itemCount = itemCount;
+        this.itemHeight = itemHeight;
+    }
+
+    @Before
+    public void setUp() {
+        harness = new SuspendTestHarness(tabCount, headerHeight, stickyHeight, itemCount, itemHeight);
+        harness.frame();
+        assertPixelConsistent(harness.getCurrentRecyclerView());
+        assertEquals(0, harness.getHeaderTranslation());
+    }
+
+    @After
+    public void tearDown() {
+        harness.controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void headerDrag_syncsCurrentTabOncePerFrame() {
+        harness.touchDownOnHeader();
+        harness.frame();
+        harness.resetCounters();
+
+        int current = harness.getCurrentTab();
+        long time = SystemClock.uptimeMillis();
+        int frames = 0;
+        // 往上拖动到头部收起之后
+        for (int moved = 0; moved < headerHeight; moved += DRAG_STEP * EVENTS_PER_FRAME) {
+            for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+                harness.touchMove(-DRAG_STEP, time++);
+            }
+            assertFalse("头部拖动不应请求layout", harness.getHeader().isLayoutRequested());
+            harness.frame();
+            frames++;
+
+            assertTrue("当前tab每帧最多同步一次", harness.getScrollToPositionCount(current) <= frames);
+            assertEquals("不可见的tab不应滑动", 0, harness.getScrollToPositionCountExcept(current));
+            assertTrue("每帧最多一次layout", harness.getLayoutCount() <= frames);
+            assertPixelConsistent(harness.getCurrentRecyclerView());
+        }
+        harness.touchCancel(time);
+        assertEquals(stickyHeight - headerHeight, harness.getHeaderTranslation());
+    }
+
+    @Test
+    public void listDrag_doesNotLayoutOrSyncOtherTabs() {
+        int current = harness.getCurrentTab();
+        int touchSlop = ViewConfiguration.get(harness.suspendViewPager.getContext()).getScaledTouchSlop();
+
+        harness.touchDownOnList();
+        long time = SystemClock.uptimeMillis();
+        // 先越过touchSlop,列表开始拖动
+        harness.touchMove(-(touchSlop + 1), time++);
+        harness.frame();
+        harness.resetCounters();
+
+        for (int moved = 0; moved < headerHeight + itemHeight * 2; moved += DRAG_STEP * EVENTS_PER_FRAME) {
+            for (int i = 0; i < EVENTS_PER_FRAME; i++) {
+                harness.touchMove(-DRAG_STEP, time++);
+            }
+            harness.frame();
+
+            assertEquals("列表拖动不应触发layout", 0, harness.getLayoutCount());
+            assertEquals("列表拖动时任何tab都不需要scrollToPosition", 0, harness.getScrollToPositionCount(current)
+                    + harness.getScrollToPositionCountExcept(current));
+            assertEquals("其他tab不应请求layout", 0, harness.getRequestLayoutCountExcept(current));
+            assertPixelConsistent(harness.getCurrentRecyclerView());
+        }
+        harness.touchCancel(time);
+        assertEquals(stickyHeight - headerHeight, harness.getHeaderTranslation());
+    }
+
+    @Test
+    public void headerFling_handsOffWithoutSyncingOtherTabs() {
+        int current = harness.getCurrentTab();
+        harness.touchDownOnHeader();
+        long time = SystemClock.uptimeMillis();
+        // 快速往上滑后抬起
+        for (int i = 0; i < 4; i++) {
+            harness.touchMove(-(headerHeight - stickyHeight) / 8f, time += 8);
+            harness.frame();
+        }
+        harness.resetCounters();
+        harness.touchUp(time + 8);
+        assertTrue("速度足够时头部应开始惯性滑动", harness.getHeader().isFlinging());
+
+        int frames = 0;
+        RecyclerView recyclerView = harness.getCurrentRecyclerView();
+        while ((harness.getHeader().isFlinging() || recyclerView.getScrollState() != RecyclerView.SCROLL_STATE_IDLE)
+                && frames < MAX_FLING_FRAMES) {
+            harness.frame();
+            frames++;
+
+            assertEquals("惯性滑动时不可见的tab不应滑动", 0, harness.getScrollToPositionCountExcept(current));
+            assertTrue("每帧最多一次layout", harness.getLayoutCount() <= frames);
+            assertPixelConsistent(recyclerView);
+        }
+        assertTrue("惯性滑动应结束", frames < MAX_FLING_FRAMES);
+    }
+
+    @Test
+    public void tabSwitch_syncsPendingTabOnce() {
+        // 头部收起一半
+        harness.touchDownOnHeader();
+        long time = SystemClock.uptimeMillis();
+        for (int moved = 0; moved < (headerHeight - stickyHeight) / 2; moved += DRAG_STEP) {
+            harness.touchMove(-DRAG_STEP, time++);
+        }
+        harness.touchCancel(time);
+        harness.frame();
+
+        int targetScrollY = harness.measureScrollY(harness.getCurrentRecyclerView());
+        assertTrue(targetScrollY > 0);
+
+        for (int tab = 1; tab < tabCount; tab++) {
+            harness.resetCounters();
+            harness.selectTab(tab);
+            harness.frame();
+
+            assertEquals(tab, harness.getCurrentTab());
+            assertTrue("切换到的tab最多同步一次", harness.getScrollToPositionCount(tab) <= 1);
+            for (int i = 0; i < tabCount; i++) {
+                // 只有新创建的相邻页面需要在首次layout前定位
+                assertTrue("其他tab最多定位一次", harness.getScrollToPositionCount(i) <= 1);
+                if (Math.abs(i - tab) > SuspendViewPager.DEFAULT_OFFSCREEN_PAGE_LIMIT) {
+                    assertEquals("屏幕外的tab不应滑动", 0, harness.getScrollToPositionCount(i));
+                }
+            }
+            assertEquals("切换后列表位置应与头部一致", targetScrollY, harness.measureScrollY(harness.getCurrentRecyclerView()));
+            assertPixelConsistent(harness.getCurrentRecyclerView());
+        }
+    }
+
+    @Test
+    public void listScrollEvents_doNotAllocate() {
+        RecyclerView recyclerView = harness.getCurrentRecyclerView();
+        int[] consumed = new int[2];
+        Runnable event = () -> {
+            harness.suspendViewPager.onNestedPreScroll(recyclerView, 0, DRAG_STEP, consumed, ViewCompat.TYPE_TOUCH);
+            harness.suspendViewPager.onNestedPreScroll(recyclerView, 0, -DRAG_STEP, consumed, ViewCompat.TYPE_TOUCH);
+        };
+        assertAllocationFree(event, 2);
+    }
+
+    @Test
+    public void headerDragEvents_doNotAllocate() {
+        Runnable event = () -> {
+            harness.suspendViewPager.onScrollListener(-DRAG_STEP);
+            harness.suspendViewPager.onScrollListener(DRAG_STEP);
+        };
+        assertAllocationFree(event, 2);
+    }
+
+    /**
+     * 统计每帧全部事件的内存分配,包括第一次事件请求帧回调;帧回调的执行及layout在帧内,不计入
+     * 每帧开始前由 {@link SuspendTestHarness#requestVsync()} 请求vsync,Robolectric 的vsync模拟不计入
+     * 核心模块中的分配由 ScrollCoordinatorAllocationTest 在JVM上检查
+     * @param event 一次事件
+     * @param eventCount 每次包含的回调数
+     */
+    private void assertAllocationFree(Runnable event, int eventCount) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        // 预热,让对象池及JIT稳定
+        for (int i = 0; i < ALLOCATION_FRAMES; i++) {
+            harness.requestVsync();
+            for (int j = 0; j < EVENTS_PER_FRAME; j++) {
+                event.run();
+            }
+            harness.frame();
+        }
+
+        long allocatedBytes = 0;
+        for (int i = 0; i < ALLOCATION_FRAMES; i++) {
+            harness.requestVsync();
+            long before = allocationBean.getThreadAllocatedBytes(threadId);
+            for (int j = 0; j < EVENTS_PER_FRAME; j++) {
+                event.run();
+            }
+            allocatedBytes += allocationBean.getThreadAllocatedBytes(threadId) - before;
+            harness.frame();
+        }
+        long bytesPerEvent = allocatedBytes / ((long) ALLOCATION_FRAMES * EVENTS_PER_FRAME * eventCount);
+        assertTrue("每个滑动事件分配了 " + bytesPerEvent + " 字节", bytesPerEvent <= ALLOCATION_BYTES_PER_EVENT);
+    }
+
+    /**
+     * 头部偏移与列表滑动距离一致: 列表的第一个item紧贴头部底部,头部收起后只剩悬浮部分
+     * @param recyclerView
+     */
+    private void assertPixelConsistent(RecyclerView recyclerView) {
+        int scrollY = harness.measureScrollY(recyclerView);
+        assertEquals("头部偏移与列表滑动距离不一致 scrollY=" + scrollY,
+                harness.expectedHeaderOffset(scrollY), harness.getHeaderTranslation());
+    }
+}
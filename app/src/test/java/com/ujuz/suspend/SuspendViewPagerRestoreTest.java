@@ -0,0 +1,313 @@
+package com.ujuz.suspend;
+
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.Parcel;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.material.tabs.TabLayout;
+import com.ujuz.suspend.adapter.TabFragmentFactory;
+import com.ujuz.suspend.adapter.ViewPagerAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Activity重建(旋转屏幕)及进程重建后恢复头部偏移、当前页及各tab的位置
+ *
+ * 重建后tab页面是FragmentManager按tag恢复的fragment(ViewPager2时由FragmentStateAdapter恢复),
+ * 而不是Activity新创建的实例,恢复的页面同样需要关联: 头部间距、滑动监听及保存的位置
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 28, qualifiers = "w360dp-h640dp-mdpi")
+public class SuspendViewPagerRestoreTest {
+    private static final int FRAME_MILLIS = 16;
+    private static final int SUSPEND_VIEW_PAGER_ID = 100;
+    private static final int TAB_COUNT = 4;
+    // 页面id与位置不同,验证按id找回页面
+    private static final long TAB_ID_BASE = 1000;
+    private static final int HEADER_HEIGHT = 300;
+    private static final int STICKY_HEIGHT = 60;
+    private static final int ITEM_COUNT = 50;
+    private static final int ITEM_HEIGHT = 80;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "viewPager2={0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{{false}, {true}});
+    }
+
+    private final boolean useViewPager2;
+    private ActivityController<RestoreActivity> controller;
+
+    public SuspendViewPagerRestoreTest(boolean useViewPager2) {
+        this.useViewPager2 = useViewPager2;
+    }
+
+    @Before
+    public void setUp() {
+        RestoreActivity.useViewPager2 = useViewPager2;
+        controller = Robolectric.buildActivity(RestoreActivity.class).setup();
+        frame();
+    }
+
+    @After
+    public void tearDown() {
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void recreate_restoresHeaderAndTabPositions() {
+        RestoreActivity activity = controller.get();
+        scrollSecondTab(activity);
+
+        controller.recreate();
+        frame();
+
+        RestoreActivity restored = controller.get();
+        assertNotSame(activity, restored);
+        assertRestored(restored);
+    }
+
+    @Test
+    public void processDeath_restoresHeaderAndTabPositions() {
+        RestoreActivity activity = controller.get();
+        scrollSecondTab(activity);
+
+        Bundle outState = new Bundle();
+        controller.pause().stop().saveInstanceState(outState).destroy();
+        // 进程重建: 状态经过序列化,新的Activity及FragmentManager只能从Bundle恢复
+        controller = Robolectric.buildActivity(RestoreActivity.class).setup(parcel(outState));
+        frame();
+
+        assertRestored(controller.get());
+    }
+
+    /**
+     * 第一个tab滑动100,切换到第二个tab后继续滑动30,头部偏移-130
+     */
+    private static void scrollSecondTab(RestoreActivity activity) {
+        findRecyclerView(activity, 0).scrollBy(0, 100);
+        frame();
+        assertEquals(-100, getHeaderTranslation(activity));
+
+        activity.suspendViewPager.setCurrentItem(1, false);
+        frame();
+        findRecyclerView(activity, 1).scrollBy(0, 30);
+        frame();
+        assertEquals(-130, getHeaderTranslation(activity));
+        assertEquals(130, measureScrollY(findRecyclerView(activity, 1)));
+    }
+
+    private static void assertRestored(RestoreActivity restored) {
+        assertEquals(1, restored.suspendViewPager.getCurrentItem());
+        Fragment page = findFragment(restored, 1);
+        assertFalse("页面应是FragmentManager恢复的实例", restored.createdFragments.contains(page));
+
+        RecyclerView recyclerView = findRecyclerView(restored, 1);
+        assertEquals("恢复的页面应有头部间距", HEADER_HEIGHT, recyclerView.getPaddingTop());
+        assertEquals(-130, getHeaderTranslation(restored));
+        assertEquals(130, measureScrollY(recyclerView));
+
+        // 恢复的页面关联了滑动监听,头部继续跟随
+        recyclerView.scrollBy(0, 20);
+        frame();
+        assertEquals(-150, getHeaderTranslation(restored));
+
+        // 其他tab可见时同步到头部的位置
+        restored.suspendViewPager.setCurrentItem(0, false);
+        frame();
+        RecyclerView first = findRecyclerView(restored, 0);
+        assertEquals(HEADER_HEIGHT, first.getPaddingTop());
+        assertEquals(150, measureScrollY(first));
+        assertEquals(-150, getHeaderTranslation(restored));
+    }
+
+    /**
+     * 与进程重建一样,写入Parcel后重新读取
+     */
+    private static Bundle parcel(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(RestoreActivity.class.getClassLoader());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static void frame() {
+        shadowOf(Looper.getMainLooper()).idle();
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static int getHeaderTranslation(RestoreActivity activity) {
+        return (int) activity.suspendViewPager.mHeaderContainer.getTranslationY();
+    }
+
+    /**
+     * 查找某个tab当前有视图的fragment
+     */
+    private static RestoreTabFragment findFragment(RestoreActivity activity, int tab) {
+        for (Fragment fragment : activity.getSupportFragmentManager().getFragments()) {
+            if (fragment instanceof RestoreTabFragment && fragment.getView() != null
+                    && ((RestoreTabFragment) fragment).getTab() == tab) {
+                return (RestoreTabFragment) fragment;
+            }
+        }
+        return null;
+    }
+
+    private static RecyclerView findRecyclerView(RestoreActivity activity, int tab) {
+        RestoreTabFragment fragment = findFragment(activity, tab);
+        assertNotNull("tab" + tab + " 还未创建", fragment);
+        return fragment.tabRecyclerView;
+    }
+
+    /**
+     * 根据第一个可见item计算列表已滑动的距离
+     */
+    private static int measureScrollY(RecyclerView recyclerView) {
+        int firstPosition = RecyclerView.NO_POSITION;
+        int firstTop = 0;
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+            if (firstPosition == RecyclerView.NO_POSITION || position < firstPosition) {
+                firstPosition = position;
+                firstTop = child.getTop();
+            }
+        }
+        if (firstPosition == RecyclerView.NO_POSITION) return 0;
+        return firstPosition * ITEM_HEIGHT + recyclerView.getPaddingTop() - firstTop;
+    }
+
+    /**
+     * 在onCreate中创建 SuspendViewPager,重建时与正常使用一样重新创建页面实例
+     */
+    public static class RestoreActivity extends AppCompatActivity {
+        static boolean useViewPager2;
+
+        SuspendViewPager suspendViewPager;
+        // 本次Activity创建的页面实例
+        final List<BaseFragment> createdFragments = new ArrayList<>();
+
+        @Override
+        protected void onCreate(Bundle savedInstanceState) {
+            setTheme(R.style.AppTheme);
+            super.onCreate(savedInstanceState);
+            suspendViewPager = new SuspendViewPager(this);
+            // 设置id后才会保存状态
+            suspendViewPager.setId(SUSPEND_VIEW_PAGER_ID);
+            setContentView(suspendViewPager,
+                    new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+            View headerView = new View(this);
+            headerView.setLayoutParams(new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, HEADER_HEIGHT - STICKY_HEIGHT));
+            TabLayout tabLayout = new TabLayout(this);
+            tabLayout.setLayoutParams(new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, STICKY_HEIGHT));
+            suspendViewPager.addHeaderView(headerView).addStickHeaderView(tabLayout);
+
+            if (useViewPager2) {
+                suspendViewPager.setTabFragmentFactory(this, new TabFragmentFactory() {
+                    @Override
+                    public int getCount() {
+                        return TAB_COUNT;
+                    }
+
+                    @Override
+                    public BaseFragment createFragment(int position) {
+                        return newFragment(position);
+                    }
+
+                    @Override
+                    public CharSequence getPageTitle(int position) {
+                        return "tab" + position;
+                    }
+
+                    @Override
+                    public long getItemId(int position) {
+                        return TAB_ID_BASE + position;
+                    }
+
+                    @Override
+                    public boolean containsItem(long itemId) {
+                        return itemId >= TAB_ID_BASE && itemId < TAB_ID_BASE + TAB_COUNT;
+                    }
+                });
+            } else {
+                List<BaseFragment> fragments = new ArrayList<>();
+                List<String> titles = new ArrayList<>();
+                for (int i = 0; i < TAB_COUNT; i++) {
+                    fragments.add(newFragment(i));
+                    titles.add("tab" + i);
+                }
+                suspendViewPager.setViewPagerAdapter(new ViewPagerAdapter(getSupportFragmentManager(), fragments, titles) {
+                    @Override
+                    public long getItemId(int position) {
+                        return TAB_ID_BASE + position;
+                    }
+                });
+            }
+        }
+
+        private BaseFragment newFragment(int tab) {
+            BaseFragment fragment = RestoreTabFragment.newInstance(tab);
+            createdFragments.add(fragment);
+            return fragment;
+        }
+    }
+
+    public static class RestoreTabFragment extends BaseFragment {
+        private static final String TAB = "tab";
+
+        static RestoreTabFragment newInstance(int tab) {
+            Bundle args = new Bundle();
+            args.putInt(TAB, tab);
+            RestoreTabFragment fragment = new RestoreTabFragment();
+            fragment.setArguments(args);
+            return fragment;
+        }
+
+        int getTab() {
+            return requireArguments().getInt(TAB);
+        }
+
+        @Override
+        public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+            RecyclerView recyclerView = new RecyclerView(requireContext());
+            recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+            recyclerView.setAdapter(new SuspendTestHarness.FixedHeightAdapter(ITEM_COUNT, ITEM_HEIGHT));
+            tabRecyclerView = recyclerView;
+            return recyclerView;
+        }
+    }
+}
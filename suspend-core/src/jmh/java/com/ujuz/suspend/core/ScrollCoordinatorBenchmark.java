@@ -0,0 +1,132 @@
+package com.ujuz.suspend.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScrollCoordinator 的基准测试,结果为每个滑动事件的耗时
+ * 配合 -prof gc 查看每个事件的内存分配,预期为 0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ScrollCoordinatorBenchmark {
+    private static final int HEADER_HEIGHT = 600;
+    private static final int STICKY_HEIGHT = 120;
+    // 一次长距离拖动的事件数
+    private static final int DRAG_EVENTS = 2000;
+    // 一次惯性滑动的帧数
+    private static final int FLING_FRAMES = 120;
+
+    @Param({"2", "10", "100"})
+    public int tabCount;
+
+    private ScrollCoordinator coordinator;
+    // 预先生成的事件,测试过程中不创建对象
+    private int[] dragDeltas;
+    private int[] flingDeltas;
+
+    @Setup
+    public void setup() {
+        coordinator = new ScrollCoordinator(tabCount);
+        coordinator.setHeaderHeight(HEADER_HEIGHT, STICKY_HEIGHT);
+
+        // 往上拖动穿过头部区域,再拖回来
+        dragDeltas = new int[DRAG_EVENTS];
+        for (int i = 0; i < DRAG_EVENTS; i++) {
+            dragDeltas[i] = i < DRAG_EVENTS / 2 ? -3 : 3;
+        }
+
+        // 速度按帧衰减,模拟OverScroller
+        flingDeltas = new int[FLING_FRAMES];
+        float velocity = 80;
+        for (int i = 0; i < FLING_FRAMES; i++) {
+            flingDeltas[i] = -Math.max(1, (int) velocity);
+            velocity *= 0.96f;
+        }
+    }
+
+    /**
+     * 当前tab的列表连续滑动,头部跟随
+     */
+    @Benchmark
+    @OperationsPerInvocation(DRAG_EVENTS)
+    public void listScroll(Blackhole blackhole) {
+        int current = 0;
+        int scrollY = 0;
+        for (int i = 0; i < DRAG_EVENTS; i++) {
+            scrollY = Math.max(0, scrollY - dragDeltas[i]);
+            blackhole.consume(coordinator.onListScroll(current, scrollY));
+        }
+        blackhole.consume(coordinator.getHeaderOffset());
+    }
+
+    /**
+     * 拖动头部,列表跟随
+     */
+    @Benchmark
+    @OperationsPerInvocation(DRAG_EVENTS)
+    public void headerDrag(Blackhole blackhole) {
+        for (int i = 0; i < DRAG_EVENTS; i++) {
+            int targetOffset = coordinator.getTargetOffset();
+            blackhole.consume(coordinator.onHeaderDrag(dragDeltas[i], targetOffset >= 0, false));
+        }
+        blackhole.consume(coordinator.getTargetOffset());
+    }
+
+    /**
+     * 头部惯性滑动,头部收起后交给列表继续滑动
+     */
+    @Benchmark
+    @OperationsPerInvocation(FLING_FRAMES)
+    public void flingSequence(Blackhole blackhole) {
+        coordinator.setHeaderOffset(0);
+        int scrollY = 0;
+        boolean handoff = false;
+        for (int i = 0; i < FLING_FRAMES; i++) {
+            if (handoff) {
+                scrollY -= flingDeltas[i];
+                blackhole.consume(coordinator.onListScroll(0, scrollY));
+            } else {
+                int result = coordinator.onHeaderFling(flingDeltas[i], false, false);
+                if (result == ScrollCoordinator.FLING_HANDOFF) {
+                    handoff = true;
+                    scrollY = -coordinator.getTargetOffset();
+                }
+                blackhole.consume(result);
+            }
+        }
+    }
+
+    /**
+     * 滑动后左右切换,依次让每个tab可见并同步
+     */
+    @Benchmark
+    @OperationsPerInvocation(DRAG_EVENTS)
+    public void scrollAndSwitchTabs(Blackhole blackhole) {
+        int current = 0;
+        int scrollY = 0;
+        for (int i = 0; i < DRAG_EVENTS; i++) {
+            scrollY = Math.max(0, scrollY - dragDeltas[i]);
+            coordinator.onListScroll(current, scrollY);
+            // 每隔一段距离切换到下一个tab
+            if (i % 50 == 0) {
+                current = (current + 1) % tabCount;
+                if (coordinator.isPending(current)) {
+                    coordinator.markSynced(current);
+                    blackhole.consume(coordinator.getTargetOffset());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.ujuz.suspend.core;
+
+import java.util.Arrays;
+
+/**
+ * item高度索引(树状数组/Fenwick tree)
+ *
+ * 单个item高度更新与前缀和查询都是 O(log n)
+ * 数组按容量分配,结构变化不会每次重新创建数组:
+ * 末尾追加(分页加载)每个新节点由前缀和 O(log n) 算出,末尾删除 O(count),
+ * 短距离移动逐个更新 O(k log n),其余中间位置的插入/删除在原数组内 O(n) 重建
+ * 未测量过的item使用已测量item的平均高度估算
+ */
+public class HeightIndex {
+    private static final int UNKNOWN = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int size;
+    // 每个item的高度,未测量为 UNKNOWN,长度为容量
+    private int[] heights = new int[0];
+    // 已测量高度的树状数组,只有 [1, size] 有效
+    private int[] heightTree = new int[1];
+    // 已测量个数的树状数组,只有 [1, size] 有效
+    private int[] countTree = new int[1];
+
+    private int knownCount;
+    private long knownSum;
+
+    /**
+     * 重置为 size 个未测量的item
+     * @param size
+     */
+    public void reset(int size) {
+        ensureCapacity(size);
+        this.size = size;
+        Arrays.fill(heights, 0, size, UNKNOWN);
+        Arrays.fill(heightTree, 0, size + 1, 0);
+        Arrays.fill(countTree, 0, size + 1, 0);
+        knownCount = 0;
+        knownSum = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 更新某个item的高度
+     * @param index
+     * @param height
+     */
+    public void set(int index, int height) {
+        if (index < 0 || index >= size || height < 0) return;
+        int old = heights[index];
+        if (old == height) return;
+
+        heights[index] = height;
+        if (old == UNKNOWN) {
+            knownCount++;
+            knownSum += height;
+            add(heightTree, index, height);
+            add(countTree, index, 1);
+        } else {
+            knownSum += height - old;
+            add(heightTree, index, height - old);
+        }
+    }
+
+    /**
+     * 将某个item标记为未测量(例如内容发生变化)
+     * @param index
+     */
+    public void invalidate(int index) {
+        if (index < 0 || index >= size) return;
+        int old = heights[index];
+        if (old == UNKNOWN) return;
+
+        heights[index] = UNKNOWN;
+        knownCount--;
+        knownSum -= old;
+        add(heightTree, index, -old);
+        add(countTree, index, -1);
+    }
+
+    /**
+     * 获取某个item的高度,未测量时返回估算值
+     * @param index
+     * @return
+     */
+    public int get(int index) {
+        int height = heights[index];
+        return height == UNKNOWN ? getEstimateHeight() : height;
+    }
+
+    /**
+     * [0, end) 范围内item的高度之和
+     * @param end
+     * @return
+     */
+    public int prefixSum(int end) {
+        end = Math.min(end, size);
+        if (end <= 0) return 0;
+
+        int sum = 0;
+        int count = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += heightTree[i];
+            count += countTree[i];
+        }
+        return sum + (end - count) * getEstimateHeight();
+    }
+
+    /**
+     * 所有item的高度之和
+     * @return
+     */
+    public int totalHeight() {
+        return (int) knownSum + (size - knownCount) * getEstimateHeight();
+    }
+
+    public int getEstimateHeight() {
+        return knownCount == 0 ? 0 : (int) (knownSum / knownCount);
+    }
+
+    /**
+     * 在 index 处插入 count 个未测量的item
+     * @param index
+     * @param count
+     */
+    public void insert(int index, int count) {
+        if (count <= 0) return;
+        index = Math.max(0, Math.min(index, size));
+        ensureCapacity(size + count);
+
+        int oldSize = size;
+        System.arraycopy(heights, index, heights, index + count, oldSize - index);
+        Arrays.fill(heights, index, index + count, UNKNOWN);
+        size = oldSize + count;
+        if (index == oldSize) {
+            // 追加: 已有节点不变,新节点 i 覆盖 (i - lowbit(i), i],其中新item未测量,只需已有部分的和
+            for (int i = oldSize + 1; i <= size; i++) {
+                int from = i - (i & -i);
+                int to = Math.min(i - 1, oldSize);
+                heightTree[i] = to > from ? query(heightTree, to) - query(heightTree, from) : 0;
+                countTree[i] = to > from ? query(countTree, to) - query(countTree, from) : 0;
+            }
+        } else {
+            rebuild();
+        }
+    }
+
+    /**
+     * 删除 index 开始的 count 个item
+     * @param index
+     * @param count
+     */
+    public void remove(int index, int count) {
+        if (index < 0 || index >= size || count <= 0) return;
+        count = Math.min(count, size - index);
+
+        for (int i = index; i < index + count; i++) {
+            int height = heights[i];
+            if (height == UNKNOWN) continue;
+            knownCount--;
+            knownSum -= height;
+        }
+        System.arraycopy(heights, index + count, heights, index, size - index - count);
+        size -= count;
+        // 删除末尾时剩余节点覆盖的范围都在 [1, size] 内,不需要更新
+        if (index < size) rebuild();
+    }
+
+    /**
+     * 移动一个item
+     * @param from
+     * @param to
+     */
+    public void move(int from, int to) {
+        if (from == to || from < 0 || to < 0 || from >= size || to >= size) return;
+
+        int start = Math.min(from, to);
+        int end = Math.max(from, to);
+        int height = heights[from];
+        if (from < to) {
+            System.arraycopy(heights, from + 1, heights, from, to - from);
+        } else {
+            System.arraycopy(heights, to, heights, to + 1, from - to);
+        }
+        heights[to] = height;
+
+        if ((long) (end - start + 1) * (32 - Integer.numberOfLeadingZeros(size)) >= size) {
+            rebuild();
+            return;
+        }
+        // 距离较短时只更新 [start, end] 内变化的item,与前一个位置的高度比较得出变化量
+        for (int i = start; i <= end; i++) {
+            int old = from < to
+                    ? (i == start ? height : heights[i - 1])
+                    : (i == end ? height : heights[i + 1]);
+            int current = heights[i];
+            if (old == current) continue;
+            add(heightTree, i, valueOf(current) - valueOf(old));
+            add(countTree, i, (current == UNKNOWN ? 0 : 1) - (old == UNKNOWN ? 0 : 1));
+        }
+    }
+
+    private static int valueOf(int height) {
+        return height == UNKNOWN ? 0 : height;
+    }
+
+    /**
+     * 在原数组内以 O(n) 重建树状数组
+     */
+    private void rebuild() {
+        Arrays.fill(heightTree, 0, size + 1, 0);
+        Arrays.fill(countTree, 0, size + 1, 0);
+        knownCount = 0;
+        knownSum = 0;
+
+        for (int i = 0; i < size; i++) {
+            int height = heights[i];
+            if (height == UNKNOWN) continue;
+            heightTree[i + 1] += height;
+            countTree[i + 1]++;
+            knownCount++;
+            knownSum += height;
+        }
+        for (int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                heightTree[parent] += heightTree[i];
+                countTree[parent] += countTree[i];
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= heights.length) return;
+        int newCapacity = Math.max(Math.max(capacity, heights.length * 2), MIN_CAPACITY);
+        heights = Arrays.copyOf(heights, newCapacity);
+        heightTree = Arrays.copyOf(heightTree, newCapacity + 1);
+        countTree = Arrays.copyOf(countTree, newCapacity + 1);
+    }
+
+    /**
+     * 树状数组 [1, end] 的和
+     */
+    private static int query(int[] tree, int end) {
+        int sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void add(int[] tree, int index, int delta) {
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.ujuz.suspend.core;
+
+import java.util.Arrays;
+
+/**
+ * 耗时直方图,单位纳秒
+ *
+ * 按2的幂分组,每组再均分为4个桶,相对误差不超过25%
+ * 桶数组在创建时分配,记录、合并、复制都不会创建对象
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // 小于 SUB_BUCKET_COUNT 的值每个值一个桶,之后每个2的幂 SUB_BUCKET_COUNT 个桶
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * 记录一个值,负数按0记录
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[bucketIndex(value)]++;
+        count++;
+        sum += value;
+        if (value > max) max = value;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * 获取百分位数,返回所在桶的上界(不超过最大值)
+     * @param percentile 0 - 100
+     * @return
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(max, upperBound(i));
+        }
+        return max;
+    }
+
+    /**
+     * 桶的数量,配合 {@link #getBucketLowerBound(int)} {@link #getBucketCount(int)} 导出完整分布
+     * @return
+     */
+    public int getBucketSize() {
+        return BUCKET_COUNT;
+    }
+
+    public long getBucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) return index;
+        int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public long getBucketCount(int index) {
+        return counts[index];
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * 合并另一个直方图的数据
+     * @param other
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        if (other.max > max) max = other.max;
+    }
+
+    /**
+     * 复制到另一个直方图,覆盖其原有数据
+     * @param out
+     */
+    public void copyTo(LatencyHistogram out) {
+        System.arraycopy(counts, 0, out.counts, 0, BUCKET_COUNT);
+        out.count = count;
+        out.sum = sum;
+        out.max = max;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private long upperBound(int index) {
+        return index + 1 < BUCKET_COUNT ? getBucketLowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,297 @@
+package com.ujuz.suspend.core;
+
+import java.util.Arrays;
+
+/**
+ * 头部与多个tab列表之间的联动状态机,不依赖Android,可以在JVM上测试及做基准测试
+ *
+ * 输入: 头部高度、悬浮部分高度、当前tab的滑动距离或头部的拖动距离
+ * 输出: 头部的偏移量(translationY)、各个tab需要滑动到的目标偏移
+ *
+ * 目标偏移(targetOffset)是列表第一个item相对头部间距(paddingTop)的偏移,即 -列表滑动距离
+ * 目标偏移变化时只递增版本号,tab是否需要同步通过比较版本号得出,每次事件的开销与tab数量无关
+ * 所有状态均为基本类型,处理事件时不会创建对象
+ */
+public class ScrollCoordinator {
+    /**
+     * 头部惯性滑动: 继续
+     */
+    public static final int FLING_CONTINUE = 0;
+    /**
+     * 头部惯性滑动: 头部已完全展开,结束
+     */
+    public static final int FLING_END = 1;
+    /**
+     * 头部惯性滑动: 头部已收起,剩余速度交给当前列表
+     */
+    public static final int FLING_HANDOFF = 2;
+
+    private int headerHeight;
+    private int stickyHeight;
+    // 头部最小的偏移量,此时只剩悬浮部分
+    private int minHeaderOffset;
+    // 头部当前的偏移量,取值范围 [minHeaderOffset, 0]
+    private int headerOffset;
+
+    private int targetOffset;
+    private int version;
+    // 各tab独立保持位置: 目标偏移只在头部范围内变化,头部收起后已滑过头部范围的tab不再同步
+    private boolean independentTabPositions;
+    // 每个tab已同步到的版本
+    private int[] appliedVersions = new int[0];
+
+    public ScrollCoordinator() {
+    }
+
+    public ScrollCoordinator(int tabCount) {
+        setTabCount(tabCount);
+    }
+
+    /**
+     * 设置头部高度
+     * @param headerHeight 整个头部的高度
+     * @param stickyHeight 悬浮部分的高度
+     */
+    public void setHeaderHeight(int headerHeight, int stickyHeight) {
+        this.headerHeight = headerHeight;
+        this.stickyHeight = stickyHeight;
+        minHeaderOffset = Math.min(0, stickyHeight - headerHeight);
+        headerOffset = clampHeaderOffset(headerOffset);
+    }
+
+    public int getHeaderHeight() {
+        return headerHeight;
+    }
+
+    public int getStickyHeight() {
+        return stickyHeight;
+    }
+
+    public int getMinHeaderOffset() {
+        return minHeaderOffset;
+    }
+
+    public int getHeaderOffset() {
+        return headerOffset;
+    }
+
+    /**
+     * 直接设置头部偏移量
+     * @param offset
+     * @return 偏移量是否变化
+     */
+    public boolean setHeaderOffset(int offset) {
+        offset = clampHeaderOffset(offset);
+        if (offset == headerOffset) return false;
+        headerOffset = offset;
+        return true;
+    }
+
+    public int clampHeaderOffset(int offset) {
+        return Math.min(0, Math.max(offset, minHeaderOffset));
+    }
+
+    public boolean isHeaderCollapsed() {
+        return headerOffset <= minHeaderOffset;
+    }
+
+    public boolean isHeaderExpanded() {
+        return headerOffset >= 0;
+    }
+
+    /**
+     * 头部停在中间时应吸附到的偏移量
+     * @param threshold 收起的比例达到该值时吸附到收起,否则吸附到展开
+     * @return 头部已完全展开或收起时返回当前偏移量
+     */
+    public int getSnapOffset(float threshold) {
+        if (isHeaderExpanded() || isHeaderCollapsed()) return headerOffset;
+        return headerOffset <= minHeaderOffset * threshold ? minHeaderOffset : 0;
+    }
+
+    /**
+     * 设置各tab是否独立保持位置
+     * 开启后当前列表滑过头部范围时目标偏移停在头部收起的位置,版本号不再变化;
+     * 头部收起时,已滑过头部范围的tab保持自己的位置,只有还在头部范围内的tab需要同步
+     * @param independent
+     */
+    public void setIndependentTabPositions(boolean independent) {
+        independentTabPositions = independent;
+        if (independent) setTargetOffset(headerOffset);
+    }
+
+    public boolean isIndependentTabPositions() {
+        return independentTabPositions;
+    }
+
+    /**
+     * 某个tab是否可以保持自己的位置而不需要同步
+     * @param scrollY 该tab列表已滑动的距离
+     * @return
+     */
+    public boolean isPositionKept(int scrollY) {
+        return independentTabPositions && isHeaderCollapsed() && -scrollY <= minHeaderOffset;
+    }
+
+    // ---------------- tab ----------------
+
+    /**
+     * 设置tab数量,已有tab的同步状态保留,新增的tab需要同步
+     * @param count
+     */
+    public void setTabCount(int count) {
+        int oldCount = appliedVersions.length;
+        appliedVersions = Arrays.copyOf(appliedVersions, count);
+        for (int i = oldCount; i < count; i++) {
+            appliedVersions[i] = version - 1;
+        }
+    }
+
+    public int getTabCount() {
+        return appliedVersions.length;
+    }
+
+    /**
+     * 在position处插入一个tab,新tab需要同步到当前的目标偏移
+     * @param position
+     */
+    public void insertTab(int position) {
+        int[] versions = new int[appliedVersions.length + 1];
+        System.arraycopy(appliedVersions, 0, versions, 0, position);
+        System.arraycopy(appliedVersions, position, versions, position + 1, appliedVersions.length - position);
+        versions[position] = version - 1;
+        appliedVersions = versions;
+    }
+
+    /**
+     * 移除position处的tab,其后的tab前移
+     * @param position
+     */
+    public void removeTab(int position) {
+        int[] versions = new int[appliedVersions.length - 1];
+        System.arraycopy(appliedVersions, 0, versions, 0, position);
+        System.arraycopy(appliedVersions, position + 1, versions, position, versions.length - position);
+        appliedVersions = versions;
+    }
+
+    /**
+     * 移动tab,同步状态跟随tab
+     * @param from
+     * @param to
+     */
+    public void moveTab(int from, int to) {
+        moveElement(appliedVersions, from, to);
+    }
+
+    /**
+     * 将数组中from处的元素移动到to,其间的元素依次平移
+     * @param array
+     * @param from
+     * @param to
+     */
+    public static void moveElement(int[] array, int from, int to) {
+        if (from == to) return;
+        int value = array[from];
+        if (from < to) {
+            System.arraycopy(array, from + 1, array, from, to - from);
+        } else {
+            System.arraycopy(array, to, array, to + 1, from - to);
+        }
+        array[to] = value;
+    }
+
+    public int getTargetOffset() {
+        return targetOffset;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * 记录新的目标偏移量,所有tab都标记为待同步
+     * @param offset
+     */
+    public void setTargetOffset(int offset) {
+        if (offset == targetOffset) return;
+        targetOffset = offset;
+        version++;
+    }
+
+    /**
+     * 标记某个tab已处于目标位置
+     * @param tab
+     */
+    public void markSynced(int tab) {
+        if (tab < 0 || tab >= appliedVersions.length) return;
+        appliedVersions[tab] = version;
+    }
+
+    /**
+     * 标记某个tab需要重新同步
+     * @param tab
+     */
+    public void markPending(int tab) {
+        if (tab < 0 || tab >= appliedVersions.length) return;
+        appliedVersions[tab] = version - 1;
+    }
+
+    public boolean isPending(int tab) {
+        return tab >= 0 && tab < appliedVersions.length && appliedVersions[tab] != version;
+    }
+
+    // ---------------- 事件 ----------------
+
+    /**
+     * 当前tab的列表滑动,头部跟随列表,当前tab是滑动源无需同步
+     * 独立位置模式下目标偏移不超出头部范围,滑过头部范围后不再标记其他tab待同步
+     * @param currentTab
+     * @param scrollY 列表已滑动的距离
+     * @return 头部偏移量是否变化
+     */
+    public boolean onListScroll(int currentTab, int scrollY) {
+        boolean changed = setHeaderOffset(-scrollY);
+        setTargetOffset(independentTabPositions ? headerOffset : -scrollY);
+        markSynced(currentTab);
+        return changed;
+    }
+
+    /**
+     * 拖动头部,当前列表需要滑动到 {@link #getTargetOffset()}
+     * @param dy 拖动距离,向下为正
+     * @param atTop 当前列表是否在顶部
+     * @param atBottom 当前列表是否在底部
+     * @return 是否需要滑动当前列表
+     */
+    public boolean onHeaderDrag(int dy, boolean atTop, boolean atBottom) {
+        // 往上滑 可滑时 / 往下滑 可滑时
+        if ((dy < 0 && !atBottom) || (dy > 0 && !atTop)) {
+            int offset = clampHeaderOffset(headerOffset + dy);
+            headerOffset = offset;
+            // 头部偏移有边界,列表按头部实际能到达的位置联动
+            setTargetOffset(offset);
+            return true;
+        }
+        // 往下滑 列表在顶部不可往下滑动时 归位
+        if (dy > 0 && !atBottom) {
+            headerOffset = 0;
+            setTargetOffset(0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 头部惯性滑动的一帧
+     * @param dy 本帧滑动距离,向下为正
+     * @param atTop 当前列表是否在顶部
+     * @param atBottom 当前列表是否在底部
+     * @return {@link #FLING_CONTINUE} {@link #FLING_END} {@link #FLING_HANDOFF}
+     */
+    public int onHeaderFling(int dy, boolean atTop, boolean atBottom) {
+        if (dy < 0 && isHeaderCollapsed()) return FLING_HANDOFF;
+        if (dy > 0 && isHeaderExpanded()) return FLING_END;
+        onHeaderDrag(dy, atTop, atBottom);
+        return FLING_CONTINUE;
+    }
+}
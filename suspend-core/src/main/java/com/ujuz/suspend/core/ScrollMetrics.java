@@ -0,0 +1,135 @@
+package com.ujuz.suspend.core;
+
+/**
+ * 滑动联动的性能统计
+ *
+ * frame: 滑动期间的每一帧,记录帧间隔及掉帧数
+ * sync: 一次联动(头部偏移及当前tab的同步)的耗时
+ * tabSync: 同步到目标位置的tab数量,每次都会触发该列表的一次layout
+ * layout: 整个视图经历的layout次数
+ * headerOffsetChange: 头部偏移量实际变化的次数
+ *
+ * 对象可重复使用,记录及复制时不会创建对象
+ */
+public class ScrollMetrics {
+    private final LatencyHistogram frameIntervals = new LatencyHistogram();
+    private final LatencyHistogram syncTimes = new LatencyHistogram();
+    private long frameCount;
+    private long droppedFrameCount;
+    private long tabSyncCount;
+    private long layoutCount;
+    private long headerOffsetChangeCount;
+
+    /**
+     * 记录一帧
+     * @param intervalNanos 与上一帧的间隔
+     * @param frameIntervalNanos 屏幕刷新间隔
+     */
+    public void recordFrame(long intervalNanos, long frameIntervalNanos) {
+        frameIntervals.record(intervalNanos);
+        frameCount++;
+        if (frameIntervalNanos > 0) {
+            // 间隔超过1.5个刷新周期即认为掉帧
+            long frames = (intervalNanos + frameIntervalNanos / 2) / frameIntervalNanos;
+            if (frames > 1) droppedFrameCount += frames - 1;
+        }
+    }
+
+    public void recordSync(long nanos) {
+        syncTimes.record(nanos);
+    }
+
+    public void recordTabSync() {
+        tabSyncCount++;
+    }
+
+    public void recordLayout() {
+        layoutCount++;
+    }
+
+    public void recordHeaderOffsetChange() {
+        headerOffsetChangeCount++;
+    }
+
+    /**
+     * 帧间隔分布
+     * @return
+     */
+    public LatencyHistogram getFrameIntervals() {
+        return frameIntervals;
+    }
+
+    /**
+     * 每次联动的耗时分布
+     * @return
+     */
+    public LatencyHistogram getSyncTimes() {
+        return syncTimes;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
+    public long getSyncCount() {
+        return syncTimes.getCount();
+    }
+
+    public long getTabSyncCount() {
+        return tabSyncCount;
+    }
+
+    public long getLayoutCount() {
+        return layoutCount;
+    }
+
+    public long getHeaderOffsetChangeCount() {
+        return headerOffsetChangeCount;
+    }
+
+    public boolean isEmpty() {
+        return frameCount == 0 && syncTimes.getCount() == 0 && layoutCount == 0;
+    }
+
+    public void reset() {
+        frameIntervals.reset();
+        syncTimes.reset();
+        frameCount = 0;
+        droppedFrameCount = 0;
+        tabSyncCount = 0;
+        layoutCount = 0;
+        headerOffsetChangeCount = 0;
+    }
+
+    /**
+     * 累加另一份统计
+     * @param other
+     */
+    public void add(ScrollMetrics other) {
+        frameIntervals.add(other.frameIntervals);
+        syncTimes.add(other.syncTimes);
+        frameCount += other.frameCount;
+        droppedFrameCount += other.droppedFrameCount;
+        tabSyncCount += other.tabSyncCount;
+        layoutCount += other.layoutCount;
+        headerOffsetChangeCount += other.headerOffsetChangeCount;
+    }
+
+    /**
+     * 复制到另一个对象,用于在回调之外保留数据
+     * @param out
+     */
+    public void copyTo(ScrollMetrics out) {
+        frameIntervals.copyTo(out.frameIntervals);
+        syncTimes.copyTo(out.syncTimes);
+        out.frameCount = frameCount;
+        out.droppedFrameCount = droppedFrameCount;
+        out.tabSyncCount = tabSyncCount;
+        out.layoutCount = layoutCount;
+        out.headerOffsetChangeCount = headerOffsetChangeCount;
+    }
+}
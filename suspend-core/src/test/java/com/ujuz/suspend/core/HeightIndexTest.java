@@ -0,0 +1,217 @@
+package com.ujuz.suspend.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 与逐个累加的简单模型比较前缀和,未测量的item按已测量的平均高度估算
+ */
+public class HeightIndexTest {
+    private static final int UNKNOWN = -1;
+
+    private HeightIndex index;
+    private List<Integer> model;
+
+    @Before
+    public void setUp() {
+        index = new HeightIndex();
+        model = new ArrayList<>();
+    }
+
+    @Test
+    public void reset_allItemsUnknown() {
+        reset(5);
+        assertEquals(5, index.size());
+        assertEquals(0, index.getEstimateHeight());
+        assertEquals(0, index.totalHeight());
+    }
+
+    @Test
+    public void set_estimatesUnknownItemsWithAverage() {
+        reset(4);
+        set(0, 100);
+        set(2, 50);
+        assertEquals(75, index.getEstimateHeight());
+        assertEquals(75, index.get(1));
+        assertEquals(175, index.prefixSum(2));
+        assertEquals(300, index.totalHeight());
+        assertMatchesModel();
+    }
+
+    @Test
+    public void set_ignoresOutOfRangeAndNegative() {
+        reset(2);
+        index.set(-1, 10);
+        index.set(2, 10);
+        index.set(0, -5);
+        assertEquals(0, index.totalHeight());
+    }
+
+    @Test
+    public void invalidate_returnsItemToEstimate() {
+        reset(3);
+        set(0, 10);
+        set(1, 20);
+        set(2, 60);
+        invalidate(2);
+        assertEquals(15, index.get(2));
+        assertMatchesModel();
+        invalidate(2);
+        assertMatchesModel();
+    }
+
+    @Test
+    public void insert_appendKeepsMeasuredHeights() {
+        reset(3);
+        set(0, 10);
+        set(1, 20);
+        set(2, 30);
+        // 逐次追加,跨过多个2的幂
+        for (int i = 0; i < 40; i++) {
+            insert(model.size(), 1 + i % 3);
+            set(model.size() - 1, i);
+            assertMatchesModel();
+        }
+    }
+
+    @Test
+    public void insert_middleShiftsHeights() {
+        reset(4);
+        for (int i = 0; i < 4; i++) set(i, (i + 1) * 10);
+        insert(1, 2);
+        assertEquals(6, index.size());
+        assertEquals(20, index.get(3));
+        assertMatchesModel();
+        insert(0, 1);
+        insert(-3, 1);
+        insert(100, 1);
+        assertMatchesModel();
+    }
+
+    @Test
+    public void remove_middleAndTail() {
+        reset(8);
+        for (int i = 0; i < 8; i++) set(i, i + 1);
+        remove(2, 3);
+        assertEquals(5, index.size());
+        assertMatchesModel();
+        remove(3, 10);
+        assertEquals(3, index.size());
+        assertMatchesModel();
+        remove(5, 1);
+        remove(0, 0);
+        assertMatchesModel();
+    }
+
+    @Test
+    public void move_forwardAndBackward() {
+        reset(64);
+        for (int i = 0; i < 64; i++) {
+            if (i % 5 != 0) set(i, i);
+        }
+        // 短距离走逐个更新,长距离走重建
+        move(3, 5);
+        assertMatchesModel();
+        move(9, 7);
+        assertMatchesModel();
+        move(0, 63);
+        assertMatchesModel();
+        move(60, 1);
+        assertMatchesModel();
+        move(4, 4);
+        move(-1, 2);
+        assertMatchesModel();
+    }
+
+    @Test
+    public void randomOperations_matchModel() {
+        Random random = new Random(20201018);
+        for (int round = 0; round < 200; round++) {
+            reset(random.nextInt(20));
+            for (int op = 0; op < 200; op++) {
+                int size = model.size();
+                switch (random.nextInt(5)) {
+                    case 0:
+                        if (size > 0) set(random.nextInt(size), random.nextInt(200));
+                        break;
+                    case 1:
+                        insert(random.nextBoolean() ? size : random.nextInt(size + 1), 1 + random.nextInt(4));
+                        break;
+                    case 2:
+                        if (size > 0) remove(random.nextInt(size), 1 + random.nextInt(4));
+                        break;
+                    case 3:
+                        if (size > 0) move(random.nextInt(size), random.nextInt(size));
+                        break;
+                    default:
+                        if (size > 0) invalidate(random.nextInt(size));
+                        break;
+                }
+                assertMatchesModel();
+            }
+        }
+    }
+
+    private void reset(int size) {
+        index.reset(size);
+        model.clear();
+        for (int i = 0; i < size; i++) model.add(UNKNOWN);
+    }
+
+    private void set(int position, int height) {
+        index.set(position, height);
+        model.set(position, height);
+    }
+
+    private void invalidate(int position) {
+        index.invalidate(position);
+        model.set(position, UNKNOWN);
+    }
+
+    private void insert(int position, int count) {
+        index.insert(position, count);
+        position = Math.max(0, Math.min(position, model.size()));
+        for (int i = 0; i < count; i++) model.add(position, UNKNOWN);
+    }
+
+    private void remove(int position, int count) {
+        index.remove(position, count);
+        if (position < 0 || position >= model.size() || count <= 0) return;
+        count = Math.min(count, model.size() - position);
+        for (int i = 0; i < count; i++) model.remove(position);
+    }
+
+    private void move(int from, int to) {
+        index.move(from, to);
+        if (from == to || from < 0 || to < 0 || from >= model.size() || to >= model.size()) return;
+        model.add(to, model.remove(from));
+    }
+
+    private void assertMatchesModel() {
+        assertEquals(model.size(), index.size());
+        long knownSum = 0;
+        int knownCount = 0;
+        for (int height : model) {
+            if (height == UNKNOWN) continue;
+            knownSum += height;
+            knownCount++;
+        }
+        int estimate = knownCount == 0 ? 0 : (int) (knownSum / knownCount);
+        assertEquals(estimate, index.getEstimateHeight());
+
+        int sum = 0;
+        for (int i = 0; i < model.size(); i++) {
+            assertEquals("prefixSum(" + i + ")", sum, index.prefixSum(i));
+            int height = model.get(i);
+            sum += height == UNKNOWN ? estimate : height;
+        }
+        assertEquals(sum, index.prefixSum(model.size()));
+        assertEquals(sum, index.totalHeight());
+    }
+}
@@ -0,0 +1,137 @@
+package com.ujuz.suspend.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 桶边界及百分位数
+ */
+public class LatencyHistogramTest {
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void bucketLowerBounds_areContiguousAndIncreasing() {
+        assertEquals(0, histogram.getBucketLowerBound(0));
+        assertEquals(3, histogram.getBucketLowerBound(3));
+        // 4之后每个2的幂分为4个桶
+        assertEquals(4, histogram.getBucketLowerBound(4));
+        assertEquals(5, histogram.getBucketLowerBound(5));
+        assertEquals(8, histogram.getBucketLowerBound(8));
+        assertEquals(10, histogram.getBucketLowerBound(9));
+        assertEquals(16, histogram.getBucketLowerBound(12));
+        for (int i = 1; i < histogram.getBucketSize(); i++) {
+            assertTrue(histogram.getBucketLowerBound(i) > histogram.getBucketLowerBound(i - 1));
+        }
+        assertEquals(7L << 60, histogram.getBucketLowerBound(histogram.getBucketSize() - 1));
+    }
+
+    @Test
+    public void record_landsInBucketContainingValue() {
+        long[] values = {0, 1, 3, 4, 7, 8, 9, 1000, 16_666_666, Long.MAX_VALUE};
+        for (long value : values) {
+            histogram.reset();
+            histogram.record(value);
+            int bucket = findBucket();
+            assertTrue(histogram.getBucketLowerBound(bucket) <= value);
+            if (bucket + 1 < histogram.getBucketSize()) {
+                assertTrue(value < histogram.getBucketLowerBound(bucket + 1));
+            }
+        }
+    }
+
+    @Test
+    public void record_negativeAsZero() {
+        histogram.record(-5);
+        assertEquals(1, histogram.getBucketCount(0));
+        assertEquals(0, histogram.getSum());
+    }
+
+    @Test
+    public void summary() {
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(30);
+        assertEquals(3, histogram.getCount());
+        assertEquals(60, histogram.getSum());
+        assertEquals(20, histogram.getMean());
+        assertEquals(30, histogram.getMax());
+    }
+
+    @Test
+    public void percentile_withinBucketError() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertPercentile(500_000, histogram.getPercentile(50));
+        assertPercentile(900_000, histogram.getPercentile(90));
+        assertPercentile(990_000, histogram.getPercentile(99));
+        // 不超过最大值
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        assertEquals(histogram.getPercentile(0), histogram.getPercentile(-10));
+        assertEquals(1_000_000, histogram.getPercentile(200));
+    }
+
+    @Test
+    public void percentile_exactForSmallValues() {
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(3);
+        assertEquals(1, histogram.getPercentile(25));
+        assertEquals(2, histogram.getPercentile(50));
+        assertEquals(3, histogram.getPercentile(75));
+    }
+
+    @Test
+    public void percentile_empty() {
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void addAndCopyTo() {
+        LatencyHistogram other = new LatencyHistogram();
+        histogram.record(100);
+        other.record(5000);
+        other.record(7);
+        histogram.add(other);
+        assertEquals(3, histogram.getCount());
+        assertEquals(5107, histogram.getSum());
+        assertEquals(5000, histogram.getMax());
+
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.record(1);
+        histogram.copyTo(copy);
+        assertEquals(3, copy.getCount());
+        assertEquals(5107, copy.getSum());
+        assertEquals(histogram.getPercentile(50), copy.getPercentile(50));
+        assertEquals(0, copy.getBucketCount(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    private int findBucket() {
+        for (int i = 0; i < histogram.getBucketSize(); i++) {
+            if (histogram.getBucketCount(i) > 0) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 返回值是所在桶的上界,不小于实际值,且相对误差不超过25%
+     */
+    private static void assertPercentile(long expected, long actual) {
+        assertTrue(actual + " < " + expected, actual >= expected);
+        assertTrue(actual + " > " + expected + " * 1.25", actual <= expected * 5 / 4);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ujuz.suspend.core;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每个滑动事件在核心模块中的内存分配,与 Robolectric 中的预算相同
+ * 在JVM上运行,不受Android框架及Robolectric影子类的分配影响
+ */
+public class ScrollCoordinatorAllocationTest {
+    private static final int TAB_COUNT = 10;
+    private static final int ITEM_COUNT = 1000;
+    private static final int EVENTS = 100_000;
+    private static final int WARMUP_EVENTS = 20_000;
+    // 每个事件平均分配的字节数上限,装箱、迭代器、lambda等都会超出
+    private static final long ALLOCATION_BYTES_PER_EVENT = 8;
+
+    private final ScrollCoordinator coordinator = new ScrollCoordinator(TAB_COUNT);
+    private final HeightIndex heightIndex = new HeightIndex();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private int scrollY;
+    private int sink;
+
+    @Test
+    public void scrollEvents_doNotAllocate() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        coordinator.setHeaderHeight(300, 60);
+        heightIndex.reset(ITEM_COUNT);
+
+        for (int i = 0; i < WARMUP_EVENTS; i++) {
+            event(i);
+        }
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < EVENTS; i++) {
+            event(i);
+        }
+        long bytesPerEvent = (allocationBean.getThreadAllocatedBytes(threadId) - before) / EVENTS;
+        assertTrue("每个滑动事件分配了 " + bytesPerEvent + " 字节", bytesPerEvent <= ALLOCATION_BYTES_PER_EVENT);
+    }
+
+    /**
+     * 一个滑动事件: 列表滑动或头部拖动/惯性滑动、测量item高度、同步可见的tab、记录耗时
+     */
+    private void event(int i) {
+        int dy = (i & 64) == 0 ? 7 : -7;
+        switch (i % 3) {
+            case 0:
+                scrollY = Math.max(0, scrollY + dy);
+                coordinator.onListScroll(0, scrollY);
+                break;
+            case 1:
+                coordinator.onHeaderDrag(-dy, scrollY == 0, false);
+                break;
+            default:
+                sink += coordinator.onHeaderFling(-dy, scrollY == 0, false);
+                break;
+        }
+        int position = i % ITEM_COUNT;
+        heightIndex.set(position, 40 + i % 50);
+        sink += heightIndex.prefixSum(position);
+        int tab = 1 + i % (TAB_COUNT - 1);
+        if (coordinator.isPending(tab)) coordinator.markSynced(tab);
+        histogram.record(i * 31L);
+    }
+}
@@ -0,0 +1,217 @@
+package com.ujuz.suspend.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 头部高度300,悬浮部分60,头部最多上移240
+ */
+public class ScrollCoordinatorTest {
+    private static final int HEADER_HEIGHT = 300;
+    private static final int STICKY_HEIGHT = 60;
+    private static final int MIN_OFFSET = STICKY_HEIGHT - HEADER_HEIGHT;
+
+    private ScrollCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        coordinator = new ScrollCoordinator(3);
+        coordinator.setHeaderHeight(HEADER_HEIGHT, STICKY_HEIGHT);
+    }
+
+    @Test
+    public void setHeaderHeight_clampsOffset() {
+        assertEquals(MIN_OFFSET, coordinator.getMinHeaderOffset());
+        coordinator.setHeaderOffset(MIN_OFFSET);
+        coordinator.setHeaderHeight(200, 60);
+        assertEquals(-140, coordinator.getHeaderOffset());
+        assertTrue(coordinator.isHeaderCollapsed());
+        // 悬浮部分比头部高时头部不能移动
+        coordinator.setHeaderHeight(40, 60);
+        assertEquals(0, coordinator.getMinHeaderOffset());
+        assertEquals(0, coordinator.getHeaderOffset());
+    }
+
+    @Test
+    public void newTabs_arePending() {
+        for (int i = 0; i < 3; i++) assertTrue(coordinator.isPending(i));
+        assertFalse(coordinator.isPending(-1));
+        assertFalse(coordinator.isPending(3));
+    }
+
+    @Test
+    public void onListScroll_headerFollowsAndOtherTabsPending() {
+        syncAll();
+        assertTrue(coordinator.onListScroll(0, 100));
+        assertEquals(-100, coordinator.getHeaderOffset());
+        assertEquals(-100, coordinator.getTargetOffset());
+        assertFalse(coordinator.isPending(0));
+        assertTrue(coordinator.isPending(1));
+        assertTrue(coordinator.isPending(2));
+
+        // 超出头部范围后头部停在收起位置,目标偏移继续跟随列表
+        assertTrue(coordinator.onListScroll(0, 500));
+        assertEquals(MIN_OFFSET, coordinator.getHeaderOffset());
+        assertEquals(-500, coordinator.getTargetOffset());
+        assertFalse(coordinator.onListScroll(0, 600));
+    }
+
+    @Test
+    public void onHeaderDrag_clampsToHeaderRange() {
+        assertTrue(coordinator.onHeaderDrag(-100, true, false));
+        assertEquals(-100, coordinator.getHeaderOffset());
+        assertEquals(-100, coordinator.getTargetOffset());
+
+        assertTrue(coordinator.onHeaderDrag(-1000, false, false));
+        assertEquals(MIN_OFFSET, coordinator.getHeaderOffset());
+        assertEquals(MIN_OFFSET, coordinator.getTargetOffset());
+
+        assertTrue(coordinator.onHeaderDrag(1000, false, false));
+        assertEquals(0, coordinator.getHeaderOffset());
+        assertEquals(0, coordinator.getTargetOffset());
+    }
+
+    @Test
+    public void onHeaderDrag_atEdges() {
+        // 列表已到底部不能上移
+        assertFalse(coordinator.onHeaderDrag(-10, true, true));
+        assertEquals(0, coordinator.getHeaderOffset());
+
+        coordinator.onHeaderDrag(-100, false, false);
+        // 列表在顶部往下拖,头部归位
+        assertTrue(coordinator.onHeaderDrag(10, true, false));
+        assertEquals(0, coordinator.getHeaderOffset());
+        assertEquals(0, coordinator.getTargetOffset());
+    }
+
+    @Test
+    public void onHeaderFling_handOffAndEnd() {
+        assertEquals(ScrollCoordinator.FLING_CONTINUE, coordinator.onHeaderFling(-200, true, false));
+        assertEquals(ScrollCoordinator.FLING_CONTINUE, coordinator.onHeaderFling(-200, false, false));
+        assertTrue(coordinator.isHeaderCollapsed());
+        assertEquals(ScrollCoordinator.FLING_HANDOFF, coordinator.onHeaderFling(-10, false, false));
+        assertEquals(MIN_OFFSET, coordinator.getHeaderOffset());
+
+        assertEquals(ScrollCoordinator.FLING_CONTINUE, coordinator.onHeaderFling(500, false, false));
+        assertTrue(coordinator.isHeaderExpanded());
+        assertEquals(ScrollCoordinator.FLING_END, coordinator.onHeaderFling(10, true, false));
+    }
+
+    @Test
+    public void setTargetOffset_sameOffsetKeepsVersion() {
+        syncAll();
+        int version = coordinator.getVersion();
+        coordinator.setTargetOffset(coordinator.getTargetOffset());
+        assertEquals(version, coordinator.getVersion());
+        assertFalse(coordinator.isPending(1));
+    }
+
+    @Test
+    public void insertTab_newTabPendingOthersKept() {
+        syncAll();
+        coordinator.markPending(2);
+        coordinator.insertTab(1);
+        assertEquals(4, coordinator.getTabCount());
+        assertFalse(coordinator.isPending(0));
+        assertTrue(coordinator.isPending(1));
+        assertFalse(coordinator.isPending(2));
+        assertTrue(coordinator.isPending(3));
+
+        coordinator.insertTab(4);
+        assertEquals(5, coordinator.getTabCount());
+        assertTrue(coordinator.isPending(4));
+    }
+
+    @Test
+    public void removeTab_shiftsFollowingTabs() {
+        syncAll();
+        coordinator.markPending(2);
+        coordinator.removeTab(1);
+        assertEquals(2, coordinator.getTabCount());
+        assertFalse(coordinator.isPending(0));
+        assertTrue(coordinator.isPending(1));
+    }
+
+    @Test
+    public void moveTab_stateFollowsTab() {
+        coordinator.setTabCount(5);
+        syncAll();
+        coordinator.markPending(1);
+        coordinator.moveTab(1, 3);
+        assertFalse(coordinator.isPending(1));
+        assertTrue(coordinator.isPending(3));
+        coordinator.moveTab(3, 0);
+        assertTrue(coordinator.isPending(0));
+        assertFalse(coordinator.isPending(3));
+    }
+
+    @Test
+    public void setTabCount_keepsExistingState() {
+        syncAll();
+        coordinator.setTabCount(5);
+        assertFalse(coordinator.isPending(2));
+        assertTrue(coordinator.isPending(3));
+        assertTrue(coordinator.isPending(4));
+        coordinator.setTabCount(2);
+        assertEquals(2, coordinator.getTabCount());
+    }
+
+    @Test
+    public void moveElement_shiftsBetween() {
+        int[] array = {0, 1, 2, 3, 4};
+        ScrollCoordinator.moveElement(array, 1, 3);
+        assertArrayEquals(new int[]{0, 2, 3, 1, 4}, array);
+        ScrollCoordinator.moveElement(array, 3, 0);
+        assertArrayEquals(new int[]{1, 0, 2, 3, 4}, array);
+    }
+
+    @Test
+    public void getSnapOffset_byThreshold() {
+        assertEquals(0, coordinator.getSnapOffset(0.5f));
+        coordinator.setHeaderOffset(-100);
+        assertEquals(0, coordinator.getSnapOffset(0.5f));
+        coordinator.setHeaderOffset(-130);
+        assertEquals(MIN_OFFSET, coordinator.getSnapOffset(0.5f));
+        coordinator.setHeaderOffset(MIN_OFFSET);
+        assertEquals(MIN_OFFSET, coordinator.getSnapOffset(0.5f));
+    }
+
+    @Test
+    public void independentTabPositions_targetStaysInHeaderRange() {
+        coordinator.setIndependentTabPositions(true);
+        syncAll();
+        coordinator.onListScroll(0, 500);
+        assertEquals(MIN_OFFSET, coordinator.getTargetOffset());
+        assertTrue(coordinator.isPending(1));
+        coordinator.markSynced(1);
+        coordinator.markSynced(2);
+
+        // 继续滑动不会再让其他tab待同步
+        coordinator.onListScroll(0, 800);
+        assertFalse(coordinator.isPending(1));
+        assertFalse(coordinator.isPending(2));
+    }
+
+    @Test
+    public void isPositionKept_onlyWhenCollapsedAndPastHeader() {
+        coordinator.setHeaderOffset(MIN_OFFSET);
+        assertFalse(coordinator.isPositionKept(500));
+
+        coordinator.setIndependentTabPositions(true);
+        assertTrue(coordinator.isPositionKept(500));
+        assertTrue(coordinator.isPositionKept(-MIN_OFFSET));
+        assertFalse(coordinator.isPositionKept(100));
+
+        coordinator.setHeaderOffset(-100);
+        assertFalse(coordinator.isPositionKept(500));
+    }
+
+    private void syncAll() {
+        for (int i = 0; i < coordinator.getTabCount(); i++) coordinator.markSynced(i);
+    }
+}